@@ -0,0 +1,125 @@
+/******************************************************************************
+ *  Compilation:  Eclipse project assignment1-bench (annotation processing
+ *                must be on so JMH generates its harness)
+ *  Execution:    java bench.PercolationBenchmark [JMH options]
+ *  Dependencies: assignment1, jmh-core, jmh-generator-annprocess
+ *
+ *  Percolation.open(), isFull() and percolates() at several grid sizes.
+ *
+ ******************************************************************************/
+
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PercolationBenchmark {
+    private static final MethodHandle NEW = Handles.constructor("Percolation", int.class);
+    private static final MethodHandle OPEN = Handles.method("Percolation", "open", void.class, int.class, int.class);
+    private static final MethodHandle IS_FULL = Handles.method("Percolation", "isFull", boolean.class, int.class,
+            int.class);
+    private static final MethodHandle PERCOLATES = Handles.method("Percolation", "percolates", boolean.class);
+    private static final MethodHandle RESET = Handles.method("Percolation", "reset", void.class);
+
+    // query sites cycled through by isFull, a power of two
+    private static final int QUERIES = 1 << 16;
+
+    @Param({ "64", "512", "2048" })
+    private int n;
+
+    private Object grid;    // sites opened one by one by open()
+    private Object halfOpen; // about half of the sites open, for the queries
+    private int[] order;    // all sites in random order
+    private int next;
+    private int[] queries;
+    private int query;
+
+    @Setup
+    public void setUp() throws Throwable {
+        Random random = new Random(42);
+        order = new int[n * n];
+        for (int j = 0; j < order.length; j++) {
+            int r = random.nextInt(j + 1);
+            order[j] = order[r];
+            order[r] = j;
+        }
+
+        grid = (Object) NEW.invokeExact(n);
+        halfOpen = (Object) NEW.invokeExact(n);
+        for (int j = 0; j < order.length / 2; j++) {
+            OPEN.invokeExact(halfOpen, order[j] / n + 1, order[j] % n + 1);
+        }
+
+        queries = new int[QUERIES];
+        for (int j = 0; j < QUERIES; j++) {
+            queries[j] = random.nextInt(n * n);
+        }
+    }
+
+    // opens the next site of the shuffled order; once all sites are open the
+    // grid is reset, which adds O(1) amortized work per open
+    @Benchmark
+    public void open() throws Throwable {
+        if (next == order.length) {
+            RESET.invokeExact(grid);
+            next = 0;
+        }
+        int site = order[next++];
+        OPEN.invokeExact(grid, site / n + 1, site % n + 1);
+    }
+
+    @Benchmark
+    public boolean isFull() throws Throwable {
+        int site = queries[query++ & (QUERIES - 1)];
+        return (boolean) IS_FULL.invokeExact(halfOpen, site / n + 1, site % n + 1);
+    }
+
+    @Benchmark
+    public boolean percolates() throws Throwable {
+        return (boolean) PERCOLATES.invokeExact(halfOpen);
+    }
+
+    // opens sites in the shuffled order until the grid percolates, i.e. one
+    // Monte Carlo trial without the random number generation
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int trial() throws Throwable {
+        RESET.invokeExact(grid);
+        next = order.length; // open() must start over after a trial
+        int k = 0;
+        do {
+            int site = order[k++];
+            OPEN.invokeExact(grid, site / n + 1, site % n + 1);
+        } while (!(boolean) PERCOLATES.invokeExact(grid));
+        return k;
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder().parent(new CommandLineOptions(args))
+                .include(PercolationBenchmark.class.getSimpleName()).build()).run();
+    }
+}
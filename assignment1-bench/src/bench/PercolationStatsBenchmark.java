@@ -0,0 +1,66 @@
+/******************************************************************************
+ *  Compilation:  Eclipse project assignment1-bench (annotation processing
+ *                must be on so JMH generates its harness)
+ *  Execution:    java bench.PercolationStatsBenchmark [JMH options]
+ *  Dependencies: assignment1, jmh-core, jmh-generator-annprocess
+ *
+ *  Throughput of whole PercolationStats runs, serial and on a fork/join
+ *  pool, reported per trial.
+ *
+ ******************************************************************************/
+
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PercolationStatsBenchmark {
+    private static final MethodHandle NEW = Handles.constructor("PercolationStats", int.class, int.class, int.class,
+            long.class);
+    private static final MethodHandle MEAN = Handles.method("PercolationStats", "mean", double.class);
+
+    private static final int TRIALS = 64;
+
+    @Param({ "64", "256", "1024" })
+    private int n;
+
+    @Param({ "1", "4" })
+    private int parallelism;
+
+    private long seed;
+
+    @Benchmark
+    @OperationsPerInvocation(TRIALS)
+    public double trials() throws Throwable {
+        Object stats = (Object) NEW.invokeExact(n, TRIALS, parallelism, seed++);
+        return (double) MEAN.invokeExact(stats);
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder().parent(new CommandLineOptions(args))
+                .include(PercolationStatsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,184 @@
+/******************************************************************************
+ *  Compilation:  Eclipse project assignment1-bench (annotation processing
+ *                must be on so JMH generates its harness)
+ *  Execution:    java bench.UnionFindBenchmark [JMH options]
+ *  Dependencies: assignment1, algs4.jar, jmh-core, jmh-generator-annprocess
+ *
+ *  One percolation trial, replaying the same shuffled order of sites, on
+ *  Percolation's own union-find and on the original layout (virtual top and
+ *  bottom sites plus a second union-find against backwash) built from each
+ *  of the algs4 union-find implementations.
+ *
+ ******************************************************************************/
+
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import edu.princeton.cs.algs4.QuickFindUF;
+import edu.princeton.cs.algs4.QuickUnionUF;
+import edu.princeton.cs.algs4.WeightedQuickUnionUF;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UnionFindBenchmark {
+    private static final MethodHandle NEW = Handles.constructor("Percolation", int.class);
+    private static final MethodHandle OPEN = Handles.method("Percolation", "open", void.class, int.class, int.class);
+    private static final MethodHandle PERCOLATES = Handles.method("Percolation", "percolates", boolean.class);
+
+    // quick-find makes every union O(n^2), so the grids stay small
+    @Param({ "64", "256" })
+    private int n;
+
+    @Param({ "percolation-uf", "weighted-quick-union", "quick-union", "quick-find" })
+    private String strategy;
+
+    private int[] order;
+
+    private interface UnionFind {
+        void union(int p, int q);
+
+        boolean connected(int p, int q);
+    }
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        order = new int[n * n];
+        for (int j = 0; j < order.length; j++) {
+            int r = random.nextInt(j + 1);
+            order[j] = order[r];
+            order[r] = j;
+        }
+    }
+
+    @Benchmark
+    public int trial() throws Throwable {
+        if (strategy.equals("percolation-uf"))
+            return percolationUF();
+        return twoUnionFinds();
+    }
+
+    private int percolationUF() throws Throwable {
+        Object grid = (Object) NEW.invokeExact(n);
+        int k = 0;
+        do {
+            int site = order[k++];
+            OPEN.invokeExact(grid, site / n + 1, site % n + 1);
+        } while (!(boolean) PERCOLATES.invokeExact(grid));
+        return k;
+    }
+
+    private UnionFind create(int size) {
+        switch (strategy) {
+        case "weighted-quick-union": {
+            WeightedQuickUnionUF uf = new WeightedQuickUnionUF(size);
+            return new UnionFind() {
+                public void union(int p, int q) {
+                    uf.union(p, q);
+                }
+
+                public boolean connected(int p, int q) {
+                    return uf.connected(p, q);
+                }
+            };
+        }
+        case "quick-union": {
+            QuickUnionUF uf = new QuickUnionUF(size);
+            return new UnionFind() {
+                public void union(int p, int q) {
+                    uf.union(p, q);
+                }
+
+                public boolean connected(int p, int q) {
+                    return uf.connected(p, q);
+                }
+            };
+        }
+        case "quick-find": {
+            QuickFindUF uf = new QuickFindUF(size);
+            return new UnionFind() {
+                public void union(int p, int q) {
+                    uf.union(p, q);
+                }
+
+                public boolean connected(int p, int q) {
+                    return uf.connected(p, q);
+                }
+            };
+        }
+        default:
+            throw new IllegalArgumentException(strategy);
+        }
+    }
+
+    // the layout Percolation used before it had its own union-find: sites
+    // 1..n*n, virtual top 0 and bottom n*n+1 in uf, top only in uf2
+    private int twoUnionFinds() {
+        UnionFind uf = create(n * n + 2);
+        UnionFind uf2 = create(n * n + 1);
+        boolean[] opened = new boolean[n * n + 2];
+        int bottom = n * n + 1;
+
+        int k = 0;
+        do {
+            int site = order[k++];
+            int row = site / n;
+            int col = site % n;
+            int pos = site + 1;
+            opened[pos] = true;
+
+            if (row == 0) {
+                uf.union(0, pos);
+                uf2.union(0, pos);
+            }
+            if (row == n - 1)
+                uf.union(bottom, pos);
+            if (row > 0 && opened[pos - n]) {
+                uf.union(pos, pos - n);
+                uf2.union(pos, pos - n);
+            }
+            if (col < n - 1 && opened[pos + 1]) {
+                uf.union(pos, pos + 1);
+                uf2.union(pos, pos + 1);
+            }
+            if (row < n - 1 && opened[pos + n]) {
+                uf.union(pos, pos + n);
+                uf2.union(pos, pos + n);
+            }
+            if (col > 0 && opened[pos - 1]) {
+                uf.union(pos, pos - 1);
+                uf2.union(pos, pos - 1);
+            }
+        } while (!uf.connected(0, bottom));
+        return k;
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder().parent(new CommandLineOptions(args))
+                .include(UnionFindBenchmark.class.getSimpleName()).build()).run();
+    }
+}
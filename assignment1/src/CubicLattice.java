@@ -0,0 +1,59 @@
+/**
+ * n-by-n-by-n simple cubic lattice, each site joined to its six axis
+ * neighbours. Site (z * n + y) * n + x, coordinates counted from 0; the top
+ * face is z = 0 and the bottom face z = n - 1.
+ */
+public class CubicLattice extends Lattice {
+    private final int n;
+    private final int layer;
+
+    public CubicLattice(int n) {
+        if (n <= 0 || (long) n * n * n > Integer.MAX_VALUE)
+            throw new IllegalArgumentException();
+        this.n = n;
+        this.layer = n * n;
+    }
+
+    @Override
+    public int sites() {
+        return layer * n;
+    }
+
+    @Override
+    public int degree() {
+        return 6;
+    }
+
+    @Override
+    public int neighbor(int site, int k) {
+        int x = site % n;
+        int y = site / n % n;
+        int z = site / layer;
+        switch (k) {
+        case 0:
+            return x < n - 1 ? site + 1 : -1;
+        case 1:
+            return y < n - 1 ? site + n : -1;
+        case 2:
+            return z < n - 1 ? site + layer : -1;
+        case 3:
+            return x > 0 ? site - 1 : -1;
+        case 4:
+            return y > 0 ? site - n : -1;
+        case 5:
+            return z > 0 ? site - layer : -1;
+        default:
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    @Override
+    public boolean isTop(int site) {
+        return site < layer;
+    }
+
+    @Override
+    public boolean isBottom(int site) {
+        return site >= layer * (n - 1);
+    }
+}
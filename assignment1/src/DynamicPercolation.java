@@ -0,0 +1,344 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Percolation with sites that can be closed again, answered offline.
+ * <p>
+ * open() and close() only append to an event log. flush() then tells, for
+ * every event since the previous flush, whether the system percolated right
+ * after it. Each site and each pair of adjacent sites is open for an interval
+ * of the log; the intervals are spread over a segment tree on the log, and a
+ * depth-first walk of the tree applies them to a union-find that can undo its
+ * unions (union by rank, no path compression) on the way back up. A flush of
+ * m events, with k sites open at its end, costs O((m + k) log m log n)
+ * instead of one O(n^2) rebuild per close: nothing in it touches the whole
+ * grid, since the walk leaves the union-find as it found it and only the
+ * open sites carry state into the next batch. The k sites still open are
+ * part of every flush, so calling percolates() after each event costs
+ * Theta(k log m log n) per event at best; batch the events where possible.
+ * <p>
+ * Sites open at the end of a batch carry over into the next one, so a long
+ * stream can be flushed in batches of any size.
+ */
+public class DynamicPercolation {
+    private static final int TOP = 1;
+    private static final int BOTTOM = 2;
+    private static final int FLAGS = TOP | BOTTOM;
+
+    private final int n;
+    private final SiteBits opened;   // state after all logged events
+    private final int[] siteStart;   // event index the site opened at, in this batch
+    private final int[] edgeStart;   // same for the bond right (2 site) and down (2 site + 1) of a site
+    private final int[] openSites;   // the open sites, in no particular order
+    private final int[] openIndex;   // where each open site is in openSites
+    private int openCount;
+    private int events;
+
+    // intervals of the current batch: [lo, hi) of the log, sites a and b
+    // (b == -1 for a site rather than a bond)
+    private int[] lo = new int[16];
+    private int[] hi = new int[16];
+    private int[] a = new int[16];
+    private int[] b = new int[16];
+    private int intervals;
+
+    // rollback union-find: parent[i] >= 0 is the parent of i, a root stores
+    // ~(rank << 2 | flags)
+    private final int[] parent;
+    private int[] undo = new int[16]; // (index, old value) pairs
+    private int undoSize;
+    private boolean percolates;    // while solving
+    private boolean percolatesNow; // after the last flushed event
+
+    // segment tree buckets: first[node] heads a list of intervals in item[]
+    private int[] first;
+    private int[] nextItem = new int[16];
+    private int[] item = new int[16];
+    private int items;
+
+    public DynamicPercolation(int n) { // create n-by-n grid, with all sites
+                                       // blocked
+        if (n <= 0)
+            throw new IllegalArgumentException();
+        this.n = n;
+        this.opened = new SiteBits(n * n);
+        this.siteStart = new int[n * n];
+        this.edgeStart = new int[2 * n * n];
+        this.openSites = new int[n * n];
+        this.openIndex = new int[n * n];
+        // every root, and solve() undoes all its unions before returning
+        this.parent = new int[n * n];
+        Arrays.fill(parent, ~0);
+    }
+
+    // coordinate to index, coordinates must already be checked
+    private int c2i(int row, int col) {
+        return (row - 1) * n + col - 1;
+    }
+
+    public void open(int row, int col) { // log opening site (row, col)
+        checkCoordinate(row);
+        checkCoordinate(col);
+
+        int pos = c2i(row, col);
+        if (!opened.get(pos)) {
+            opened.set(pos);
+            openIndex[pos] = openCount;
+            openSites[openCount++] = pos;
+            siteStart[pos] = events;
+            if (row > 1 && opened.get(pos - n))
+                edgeStart[2 * (pos - n) + 1] = events;
+            if (col < n && opened.get(pos + 1))
+                edgeStart[2 * pos] = events;
+            if (row < n && opened.get(pos + n))
+                edgeStart[2 * pos + 1] = events;
+            if (col > 1 && opened.get(pos - 1))
+                edgeStart[2 * (pos - 1)] = events;
+        }
+        events++;
+    }
+
+    public void close(int row, int col) { // log closing site (row, col)
+        checkCoordinate(row);
+        checkCoordinate(col);
+
+        int pos = c2i(row, col);
+        if (opened.get(pos)) {
+            opened.clear(pos);
+            int last = openSites[--openCount];
+            openSites[openIndex[pos]] = last;
+            openIndex[last] = openIndex[pos];
+            addInterval(siteStart[pos], events, pos, -1);
+            if (row > 1 && opened.get(pos - n))
+                addInterval(edgeStart[2 * (pos - n) + 1], events, pos - n, pos);
+            if (col < n && opened.get(pos + 1))
+                addInterval(edgeStart[2 * pos], events, pos, pos + 1);
+            if (row < n && opened.get(pos + n))
+                addInterval(edgeStart[2 * pos + 1], events, pos, pos + n);
+            if (col > 1 && opened.get(pos - 1))
+                addInterval(edgeStart[2 * (pos - 1)], events, pos - 1, pos);
+        }
+        events++;
+    }
+
+    public boolean isOpen(int row, int col) { // is site (row, col) open after
+                                              // all logged events?
+        checkCoordinate(row);
+        checkCoordinate(col);
+        return opened.get(c2i(row, col));
+    }
+
+    public int pending() { // events logged since the last flush
+        return events;
+    }
+
+    // whether the system percolated after each event logged since the last
+    // flush, in log order; starts a new batch
+    public boolean[] flush() {
+        boolean[] result = new boolean[events];
+        if (events == 0)
+            return result;
+
+        // whatever is still open lasts until the end of the batch
+        for (int j = 0; j < openCount; j++) {
+            int pos = openSites[j];
+            addInterval(siteStart[pos], events, pos, -1);
+            if (pos % n < n - 1 && opened.get(pos + 1))
+                addInterval(edgeStart[2 * pos], events, pos, pos + 1);
+            if (pos < n * (n - 1) && opened.get(pos + n))
+                addInterval(edgeStart[2 * pos + 1], events, pos, pos + n);
+        }
+
+        first = new int[4 * events];
+        Arrays.fill(first, -1);
+        items = 0;
+        for (int j = 0; j < intervals; j++) {
+            insert(1, 0, events, j);
+        }
+
+        undoSize = 0;
+        percolates = false;
+        solve(1, 0, events, result);
+        percolatesNow = result[events - 1];
+
+        // the next batch starts with the sites open now, open since its
+        // beginning; closed sites get new starts when they reopen
+        for (int j = 0; j < openCount; j++) {
+            int pos = openSites[j];
+            siteStart[pos] = 0;
+            edgeStart[2 * pos] = 0;
+            edgeStart[2 * pos + 1] = 0;
+        }
+        intervals = 0;
+        events = 0;
+        first = null;
+        return result;
+    }
+
+    public boolean percolates() { // does the system percolate after all logged
+                                  // events? flushes the log
+        if (events > 0)
+            flush();
+        return percolatesNow;
+    }
+
+    private void addInterval(int from, int to, int p, int q) {
+        if (from >= to)
+            return;
+        if (intervals == lo.length) {
+            lo = Arrays.copyOf(lo, 2 * intervals);
+            hi = Arrays.copyOf(hi, 2 * intervals);
+            a = Arrays.copyOf(a, 2 * intervals);
+            b = Arrays.copyOf(b, 2 * intervals);
+        }
+        lo[intervals] = from;
+        hi[intervals] = to;
+        a[intervals] = p;
+        b[intervals] = q;
+        intervals++;
+    }
+
+    // adds interval j to the nodes covering it below node, which spans
+    // events [from, to)
+    private void insert(int node, int from, int to, int j) {
+        if (hi[j] <= from || to <= lo[j])
+            return;
+        if (lo[j] <= from && to <= hi[j]) {
+            if (items == item.length) {
+                item = Arrays.copyOf(item, 2 * items);
+                nextItem = Arrays.copyOf(nextItem, 2 * items);
+            }
+            item[items] = j;
+            nextItem[items] = first[node];
+            first[node] = items++;
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        insert(2 * node, from, mid, j);
+        insert(2 * node + 1, mid, to, j);
+    }
+
+    private void solve(int node, int from, int to, boolean[] result) {
+        int mark = undoSize;
+        boolean before = percolates;
+
+        for (int k = first[node]; k >= 0; k = nextItem[k]) {
+            apply(a[item[k]], b[item[k]]);
+        }
+
+        if (to - from == 1) {
+            result[from] = percolates;
+        } else {
+            int mid = (from + to) >>> 1;
+            solve(2 * node, from, mid, result);
+            solve(2 * node + 1, mid, to, result);
+        }
+
+        while (undoSize > mark) {
+            undoSize -= 2;
+            parent[undo[undoSize]] = undo[undoSize + 1];
+        }
+        percolates = before;
+    }
+
+    // opens site p (q == -1) or joins open sites p and q
+    private void apply(int p, int q) {
+        int flags;
+        if (q < 0) {
+            int f = 0;
+            if (p < n)
+                f |= TOP;
+            if (p >= n * (n - 1))
+                f |= BOTTOM;
+            if (f == 0)
+                return;
+            int root = find(p);
+            save(root);
+            parent[root] &= ~f;
+            flags = ~parent[root] & FLAGS;
+        } else {
+            flags = union(p, q);
+        }
+        if (flags == FLAGS)
+            percolates = true;
+    }
+
+    private int find(int p) {
+        while (parent[p] >= 0) {
+            p = parent[p];
+        }
+        return p;
+    }
+
+    private int union(int p, int q) {
+        int i = find(p);
+        int j = find(q);
+        int bi = ~parent[i];
+        int bj = ~parent[j];
+        int flags = (bi | bj) & FLAGS;
+
+        if (i == j)
+            return flags;
+
+        save(i);
+        save(j);
+        int ri = bi >>> 2;
+        int rj = bj >>> 2;
+        if (ri < rj) {
+            parent[i] = j;
+            parent[j] = ~(bj | flags);
+        } else {
+            parent[j] = i;
+            parent[i] = ri > rj ? ~(bi | flags) : ~((ri + 1) << 2 | flags);
+        }
+        return flags;
+    }
+
+    private void save(int i) {
+        if (undoSize == undo.length)
+            undo = Arrays.copyOf(undo, 2 * undoSize);
+        undo[undoSize++] = i;
+        undo[undoSize++] = parent[i];
+    }
+
+    private void checkCoordinate(int x) {
+        if (x < 1 || x > n)
+            throw new IndexOutOfBoundsException();
+    }
+
+    public static void main(String[] args) { // test client: random open/close
+                                             // streams against rebuilding a
+                                             // Percolation after every event
+        Random random = new Random(7);
+        int n = 6;
+        DynamicPercolation dynamic = new DynamicPercolation(n);
+        boolean[] open = new boolean[n * n];
+
+        for (int batch = 0; batch < 20; batch++) {
+            int m = 1 + random.nextInt(50);
+            boolean[] expected = new boolean[m];
+            for (int t = 0; t < m; t++) {
+                int row = random.nextInt(n) + 1;
+                int col = random.nextInt(n) + 1;
+                if (random.nextInt(3) == 0) {
+                    dynamic.close(row, col);
+                    open[(row - 1) * n + col - 1] = false;
+                } else {
+                    dynamic.open(row, col);
+                    open[(row - 1) * n + col - 1] = true;
+                }
+
+                Percolation rebuilt = new Percolation(n);
+                for (int j = 0; j < open.length; j++) {
+                    if (open[j])
+                        rebuilt.open(j / n + 1, j % n + 1);
+                }
+                expected[t] = rebuilt.percolates();
+            }
+
+            assert dynamic.pending() == m;
+            assert Arrays.equals(dynamic.flush(), expected) : "batch " + batch;
+            assert dynamic.percolates() == expected[m - 1];
+        }
+    }
+}
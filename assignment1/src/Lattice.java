@@ -0,0 +1,35 @@
+/**
+ * The sites of a percolation system and how they neighbour each other.
+ * <p>
+ * Every site has at most degree() neighbours, numbered so that neighbours k
+ * and k + degree() / 2 lie in opposite directions. The first half of the
+ * directions also numbers the bonds: bond site * (degree() / 2) + k joins
+ * site to its k-th neighbour, and does not exist if that neighbour is off the
+ * lattice. Bond ids are ints, so bond percolation needs
+ * sites() * (degree() / 2) to fit in one.
+ */
+public abstract class Lattice {
+    public abstract int sites(); // number of sites
+
+    public abstract int degree(); // neighbours of an interior site, even
+
+    public abstract int neighbor(int site, int k); // k-th neighbour of site,
+                                                   // or -1 off the lattice
+
+    public abstract boolean isTop(int site); // is site on the top face?
+
+    public abstract boolean isBottom(int site); // is site on the bottom face?
+
+    public int bonds() { // number of bond ids, including missing ones;
+                         // ArithmeticException if they do not fit in an int
+        return Math.toIntExact((long) sites() * (degree() / 2));
+    }
+
+    public int bondSite(int bond) { // first end of bond
+        return bond / (degree() / 2);
+    }
+
+    public int bondEnd(int bond) { // second end of bond, or -1 if it is missing
+        return neighbor(bondSite(bond), bond % (degree() / 2));
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ * Site or bond percolation on any Lattice, on the same union-find as
+ * Percolation. The system percolates once a cluster joins a site on the top
+ * face to a site on the bottom face.
+ * <p>
+ * In site percolation the elements that get opened are sites and every open
+ * site joins its open neighbours. In bond percolation all sites are present,
+ * the elements are bond ids (see Lattice) and an open bond joins its two
+ * ends; ids of bonds that are missing at the boundary cannot be opened.
+ */
+public class LatticePercolation {
+    private final Lattice lattice;
+    private final boolean bonds;
+    private final int degree;
+    private final PercolationUF uf;
+    private final SiteBits opened;
+    private int openCount;
+    private boolean percolates;
+
+    public LatticePercolation(Lattice lattice) { // site percolation
+        this(lattice, false);
+    }
+
+    public LatticePercolation(Lattice lattice, boolean bonds) {
+        if (lattice == null)
+            throw new NullPointerException();
+        // checked before allocating anything sized by the lattice
+        if (bonds && (long) lattice.sites() * (lattice.degree() / 2) > Integer.MAX_VALUE)
+            throw new IllegalArgumentException();
+        this.lattice = lattice;
+        this.bonds = bonds;
+        this.degree = lattice.degree();
+        this.uf = new PercolationUF(lattice.sites());
+        this.opened = new SiteBits(bonds ? lattice.bonds() : lattice.sites());
+        reset();
+    }
+
+    public void reset() { // block all elements again, reusing the arrays
+        uf.reset();
+        opened.clear();
+        openCount = 0;
+        percolates = false;
+
+        if (bonds) {
+            // every site is present, so the faces are part of the system
+            // from the start
+            for (int site = 0; site < lattice.sites(); site++) {
+                if (uf.mark(site, faces(site)) == (PercolationUF.TOP | PercolationUF.BOTTOM))
+                    percolates = true;
+            }
+        }
+    }
+
+    public Lattice lattice() {
+        return lattice;
+    }
+
+    public boolean bonds() { // bond percolation?
+        return bonds;
+    }
+
+    public int size() { // number of element ids, sites or bonds
+        return opened.size();
+    }
+
+    // opens element e; returns false if it was open already or is a bond
+    // missing at the boundary
+    public boolean open(int e) {
+        checkElement(e);
+        if (opened.get(e))
+            return false;
+
+        int flags;
+        if (bonds) {
+            int end = lattice.bondEnd(e);
+            if (end < 0)
+                return false;
+            flags = uf.union(lattice.bondSite(e), end);
+        } else {
+            flags = uf.mark(e, faces(e));
+            for (int k = 0; k < degree; k++) {
+                int neighbor = lattice.neighbor(e, k);
+                if (neighbor >= 0 && opened.get(neighbor))
+                    flags = uf.union(e, neighbor);
+            }
+        }
+
+        opened.set(e);
+        openCount++;
+        if (flags == (PercolationUF.TOP | PercolationUF.BOTTOM))
+            percolates = true;
+        return true;
+    }
+
+    public boolean isOpen(int e) { // is element e open?
+        checkElement(e);
+        return opened.get(e);
+    }
+
+    public boolean isFull(int site) { // is site connected to the top face?
+        if (site < 0 || site >= lattice.sites())
+            throw new IndexOutOfBoundsException();
+        return (bonds || opened.get(site)) && (uf.flags(site) & PercolationUF.TOP) != 0;
+    }
+
+    public int numberOfOpen() { // number of open elements
+        return openCount;
+    }
+
+    public boolean percolates() { // does the system percolate?
+        return percolates;
+    }
+
+    private int faces(int site) {
+        int flags = 0;
+        if (lattice.isTop(site))
+            flags |= PercolationUF.TOP;
+        if (lattice.isBottom(site))
+            flags |= PercolationUF.BOTTOM;
+        return flags;
+    }
+
+    private void checkElement(int e) {
+        if (e < 0 || e >= opened.size())
+            throw new IndexOutOfBoundsException();
+    }
+
+    public static void main(String[] args) { // test client
+        // site percolation down the middle column of a 3-by-3 square lattice
+        LatticePercolation square = new LatticePercolation(new SquareLattice(3));
+        assert square.open(1);
+        assert !square.open(1);
+        assert square.open(4);
+        assert !square.percolates();
+        assert square.open(7);
+        assert square.percolates();
+        assert square.isFull(7);
+        assert !square.isFull(8);
+
+        // on the triangular lattice 2 -> 4 -> 6 is a path down the diagonal
+        LatticePercolation triangular = new LatticePercolation(new TriangularLattice(3));
+        triangular.open(2);
+        triangular.open(4);
+        triangular.open(6);
+        assert triangular.percolates();
+
+        // a 2-by-2-by-2 cube percolates along a single z column
+        LatticePercolation cubic = new LatticePercolation(new CubicLattice(2));
+        cubic.open(3);
+        assert !cubic.percolates();
+        cubic.open(7);
+        assert cubic.percolates();
+
+        // bond percolation on a 2-by-2 square lattice: bonds of site s are
+        // 2s (right) and 2s + 1 (down); the right bond of site 1 is missing
+        LatticePercolation bond = new LatticePercolation(new SquareLattice(2), true);
+        assert bond.isFull(1);
+        assert !bond.open(2);
+        assert bond.open(3);
+        assert bond.percolates();
+        assert bond.isFull(3);
+        assert !bond.isFull(2);
+        bond.reset();
+        assert !bond.percolates();
+        assert !bond.isOpen(3);
+
+        // 2^30 cubic sites have 3 * 2^30 bonds, more than an int can number
+        Lattice huge = new CubicLattice(1 << 10);
+        try {
+            huge.bonds();
+            assert false;
+        } catch (ArithmeticException ae) {
+            // good
+        }
+        try {
+            new LatticePercolation(huge, true);
+            assert false;
+        } catch (IllegalArgumentException iae) {
+            // good
+        }
+    }
+}
@@ -0,0 +1,216 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Percolation with the union-find kept outside the Java heap, in direct
+ * buffers or in a memory-mapped file, for grids with more than 2^31 sites.
+ * <p>
+ * Each site takes one long: a positive entry is 1 + the index of its parent,
+ * anything else is a root holding -(rank << 3 | OPEN | TOP | BOTTOM). A zero
+ * entry is therefore a blocked singleton, so a freshly allocated buffer or a
+ * newly extended (sparse) file needs no initialization, and the open state
+ * needs no separate array: a non-root site is always open.
+ * <p>
+ * Direct buffers count against -XX:MaxDirectMemorySize; use the file-backed
+ * constructor for grids that do not fit in memory at all.
+ */
+public class OffHeapPercolation {
+    private static final long TOP = 1;
+    private static final long BOTTOM = 2;
+    private static final long OPEN = 4;
+    private static final long FLAGS = TOP | BOTTOM;
+    private static final int RANK_SHIFT = 3;
+
+    // 2^27 longs (1 GiB) per buffer, the largest power of two a buffer holds
+    private static final int CHUNK_BITS = 27;
+    private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+    private final int n;
+    private final LongBuffer[] chunks;
+    private long openSites;
+    private boolean percolates;
+
+    public OffHeapPercolation(int n) { // n-by-n grid in direct buffers
+        this.n = checkSize(n);
+        this.chunks = new LongBuffer[chunkCount(n)];
+
+        long sites = (long) n * n;
+        for (int c = 0; c < chunks.length; c++) {
+            long longs = Math.min(sites - ((long) c << CHUNK_BITS), 1L << CHUNK_BITS);
+            chunks[c] = ByteBuffer.allocateDirect((int) (longs * Long.BYTES)).order(ByteOrder.nativeOrder())
+                    .asLongBuffer();
+        }
+    }
+
+    // n-by-n grid mapped from file, which is created or truncated first
+    public OffHeapPercolation(int n, Path file) throws IOException {
+        this.n = checkSize(n);
+        this.chunks = new LongBuffer[chunkCount(n)];
+
+        long sites = (long) n * n;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int c = 0; c < chunks.length; c++) {
+                long first = (long) c << CHUNK_BITS;
+                long longs = Math.min(sites - first, 1L << CHUNK_BITS);
+                // mapping past the end grows the file, which stays sparse
+                // until pages are written
+                chunks[c] = channel.map(FileChannel.MapMode.READ_WRITE, first * Long.BYTES, longs * Long.BYTES)
+                        .order(ByteOrder.nativeOrder()).asLongBuffer();
+            }
+        }
+    }
+
+    private static int checkSize(int n) {
+        if (n <= 0)
+            throw new IllegalArgumentException();
+        return n;
+    }
+
+    private static int chunkCount(int n) {
+        return (int) ((((long) n * n) + CHUNK_MASK) >>> CHUNK_BITS);
+    }
+
+    private long get(long i) {
+        return chunks[(int) (i >>> CHUNK_BITS)].get((int) (i & CHUNK_MASK));
+    }
+
+    private void set(long i, long value) {
+        chunks[(int) (i >>> CHUNK_BITS)].put((int) (i & CHUNK_MASK), value);
+    }
+
+    // coordinate to index, coordinates must already be checked
+    private long c2i(int row, int col) {
+        return (long) (row - 1) * n + col - 1;
+    }
+
+    private long find(long p) {
+        long q;
+        while ((q = get(p)) > 0) {
+            long r = get(q - 1);
+            if (r <= 0)
+                return q - 1;
+            set(p, r);
+            p = r - 1;
+        }
+        return p;
+    }
+
+    private long union(long p, long q) { // returns the flags of the merged root
+        long i = find(p);
+        long j = find(q);
+        long bi = -get(i);
+        long bj = -get(j);
+        long flags = (bi | bj) & FLAGS;
+
+        if (i == j)
+            return flags;
+
+        long ri = bi >>> RANK_SHIFT;
+        long rj = bj >>> RANK_SHIFT;
+        if (ri < rj) {
+            set(i, j + 1);
+            set(j, -(bj | flags));
+        } else {
+            set(j, i + 1);
+            set(i, ri > rj ? -(bi | flags) : -((ri + 1) << RANK_SHIFT | OPEN | flags));
+        }
+        return flags;
+    }
+
+    private boolean isOpen(long i) {
+        long e = get(i);
+        return e > 0 || (-e & OPEN) != 0;
+    }
+
+    public void open(int row, int col) { // open site (row, col) if it is not
+                                         // open already
+        checkCoordinate(row);
+        checkCoordinate(col);
+
+        long pos = c2i(row, col);
+        if (isOpen(pos))
+            return;
+
+        long flags = 0;
+        if (row == 1)
+            flags |= TOP;
+        if (row == n)
+            flags |= BOTTOM;
+        set(pos, -(OPEN | flags)); // a blocked site is always a singleton
+        openSites++;
+
+        if (row > 1 && isOpen(pos - n))
+            flags = union(pos, pos - n);
+
+        if (col < n && isOpen(pos + 1))
+            flags = union(pos, pos + 1);
+
+        if (row < n && isOpen(pos + n))
+            flags = union(pos, pos + n);
+
+        if (col > 1 && isOpen(pos - 1))
+            flags = union(pos, pos - 1);
+
+        if (flags == (TOP | BOTTOM))
+            percolates = true;
+    }
+
+    public boolean isOpen(int row, int col) { // is site (row, col) open?
+        checkCoordinate(row);
+        checkCoordinate(col);
+        return isOpen(c2i(row, col));
+    }
+
+    public boolean isFull(int row, int col) { // is site (row, col) full?
+        checkCoordinate(row);
+        checkCoordinate(col);
+        long pos = c2i(row, col);
+        return isOpen(pos) && (-get(find(pos)) & TOP) != 0;
+    }
+
+    public long numberOfOpenSites() { // number of open sites
+        return openSites;
+    }
+
+    public boolean percolates() { // does the system percolate?
+        return percolates;
+    }
+
+    private void checkCoordinate(int x) {
+        if (x < 1 || x > n)
+            throw new IndexOutOfBoundsException();
+    }
+
+    public static void main(String[] args) throws IOException { // test client
+        Path file = Files.createTempFile("percolation", ".grid");
+        // a mapped file cannot be deleted on every platform while mapped
+        file.toFile().deleteOnExit();
+
+        OffHeapPercolation[] grids = { new OffHeapPercolation(4), new OffHeapPercolation(4, file) };
+        for (OffHeapPercolation p : grids) {
+            assert (!p.percolates());
+            assert (!p.isOpen(2, 2));
+            assert (!p.isFull(1, 1));
+
+            p.open(2, 2);
+            p.open(3, 2);
+            assert (!p.isFull(2, 2));
+            p.open(4, 2);
+            p.open(4, 4);
+            assert (!p.percolates());
+            p.open(1, 2);
+            assert (p.isFull(1, 2));
+            assert (p.isFull(4, 2));
+            assert (!p.isFull(4, 4)); // no backwash
+            assert (p.percolates());
+            assert (p.numberOfOpenSites() == 5);
+        }
+    }
+}
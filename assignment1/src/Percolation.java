@@ -1,30 +1,66 @@
-import edu.princeton.cs.algs4.WeightedQuickUnionUF;
+import java.util.Objects;
 
 public class Percolation {
-    private int n;
-    // QuickFindUF uf;
-    private WeightedQuickUnionUF uf;
-    private WeightedQuickUnionUF uf2;
-    private boolean[] opened;
+    private final int n;
+    private final PercolationUF uf;
+    private final SiteBits opened;
+    private final boolean clusters;
+    private final PercolationListener listener;
+    private final int[] next; // circular lists of cluster sites, with listener
+    private final int[] neighbors = new int[4];
+    private final int[] roots = new int[4];
+    private int openSites;
+    private boolean percolates;
+    private int largestCluster;
 
     public Percolation(int n) { // create n-by-n grid, with all sites blocked
+        this(n, false);
+    }
+
+    public Percolation(int n, boolean clusters) { // optionally track cluster
+                                                  // sizes for largestCluster()
+        this(n, clusters, null);
+    }
+
+    // as above with cluster sizes, reporting each open() to listener
+    public Percolation(int n, PercolationListener listener) {
+        this(n, true, Objects.requireNonNull(listener));
+    }
+
+    private Percolation(int n, boolean clusters, PercolationListener listener) {
         if (n <= 0)
             throw new IllegalArgumentException();
         this.n = n;
-        // this.uf = new QuickFindUF(n*n + 2);
-        this.uf = new WeightedQuickUnionUF(n * n + 2);
-        this.uf2 = new WeightedQuickUnionUF(n * n + 1);
-        this.opened = new boolean[n * n + 2];
+        this.clusters = clusters;
+        this.listener = listener;
+        this.next = listener != null ? new int[n * n] : null;
+        // top/bottom connectivity is kept as flags on the union-find roots,
+        // so there are no virtual sites and no second union-find for backwash
+        this.uf = new PercolationUF(n * n, clusters);
+        this.opened = new SiteBits(n * n);
+        resetClusterLists();
+    }
+
+    public void reset() { // block all sites again, reusing the arrays
+        uf.reset();
+        opened.clear();
+        openSites = 0;
+        percolates = false;
+        largestCluster = 0;
+        resetClusterLists();
+    }
 
-        opened[0] = true;
-        opened[n * n + 1] = true;
+    private void resetClusterLists() {
+        if (next == null)
+            return;
+        for (int j = 0; j < next.length; j++) {
+            next[j] = j;
+        }
     }
 
-    // coordinate to index
+    // coordinate to index, coordinates must already be checked
     private int c2i(int row, int col) {
-        checkCoordinate(row);
-        checkCoordinate(col);
-        return (row - 1) * n + col;
+        return (row - 1) * n + col - 1;
     }
 
     public void open(int row, int col) { // open site (row, col) if it is not
@@ -33,49 +69,168 @@ public class Percolation {
         checkCoordinate(col);
 
         int pos = c2i(row, col);
-        opened[pos] = true;
+        if (!opened.get(pos))
+            openSite(row, col, pos);
+    }
 
-        if (row == 1) {
-            uf.union(0, pos);
-            uf2.union(0, pos);
+    // opens every site in sites, given as row-major indices (row - 1) * n +
+    // (col - 1); all indices are checked before any site is opened
+    public void openAll(int[] sites) {
+        if (sites == null)
+            throw new NullPointerException();
+        for (int site : sites) {
+            if (site < 0 || site >= n * n)
+                throw new IndexOutOfBoundsException();
         }
-        
+
+        // row-major order makes the unions walk the arrays forward; a few
+        // sites are sorted, many go through a bitmap, which needs no sort
+        if (sites.length < (n * n >>> 6)) {
+            int[] sorted = sites.clone();
+            java.util.Arrays.sort(sorted);
+            for (int pos : sorted) {
+                if (!opened.get(pos))
+                    openSite(pos / n + 1, pos % n + 1, pos);
+            }
+            return;
+        }
+
+        SiteBits bits = new SiteBits(n * n);
+        for (int site : sites) {
+            bits.set(site);
+        }
+        openAll(bits);
+    }
+
+    // opens every site whose row-major index is set in sites, which must hold
+    // n * n sites
+    public void openAll(SiteBits sites) {
+        if (sites == null)
+            throw new NullPointerException();
+        if (sites.size() != n * n)
+            throw new IllegalArgumentException();
+
+        for (int pos = sites.nextSetBit(0); pos >= 0; pos = sites.nextSetBit(pos + 1)) {
+            if (!opened.get(pos))
+                openSite(pos / n + 1, pos % n + 1, pos);
+        }
+    }
+
+    // opens blocked site pos at (row, col), all already checked
+    private void openSite(int row, int col, int pos) {
+        opened.set(pos);
+        openSites++;
+
+        int flags = 0;
+        if (row == 1)
+            flags |= PercolationUF.TOP;
         if (row == n)
-            uf.union(n * n + 1, pos);
+            flags |= PercolationUF.BOTTOM;
+        if (flags != 0)
+            flags = uf.mark(pos, flags);
+
+        if (listener != null)
+            fill(row, col, pos);
+
+        if (row > 1 && opened.get(pos - n))
+            flags = uf.union(pos, pos - n);
+
+        if (col < n && opened.get(pos + 1))
+            flags = uf.union(pos, pos + 1);
+
+        if (row < n && opened.get(pos + n))
+            flags = uf.union(pos, pos + n);
+
+        if (col > 1 && opened.get(pos - 1))
+            flags = uf.union(pos, pos - 1);
+
+        if (flags == (PercolationUF.TOP | PercolationUF.BOTTOM))
+            percolates = true;
 
-        if (row > 1 && opened[c2i(row - 1, col)]) {
-            uf.union(pos, c2i(row - 1, col));
-            uf2.union(pos, c2i(row - 1, col));
+        if (clusters)
+            largestCluster = Math.max(largestCluster, uf.componentSize(pos));
+
+        if (listener != null)
+            listener.opened(row, col, largestCluster);
+    }
+
+    // called before pos is joined to its open neighbours: if the merged
+    // cluster will be full, reports pos and every site of the neighbouring
+    // clusters that are not full yet, then splices the neighbours' site
+    // lists into the list of pos
+    private void fill(int row, int col, int pos) {
+        int count = 0;
+        if (row > 1)
+            count = addNeighbor(pos - n, count);
+        if (col < n)
+            count = addNeighbor(pos + 1, count);
+        if (row < n)
+            count = addNeighbor(pos + n, count);
+        if (col > 1)
+            count = addNeighbor(pos - 1, count);
+
+        boolean full = row == 1;
+        for (int j = 0; j < count && !full; j++) {
+            full = (uf.flags(roots[j]) & PercolationUF.TOP) != 0;
         }
-        
-        if (col < n && opened[c2i(row, col + 1)]) {
-            uf.union(pos, c2i(row, col + 1));
-            uf2.union(pos, c2i(row, col + 1));
+
+        if (full) {
+            listener.filled(row, col);
+            for (int j = 0; j < count; j++) {
+                if ((uf.flags(roots[j]) & PercolationUF.TOP) != 0)
+                    continue;
+                int site = neighbors[j];
+                do {
+                    listener.filled(site / n + 1, site % n + 1);
+                    site = next[site];
+                } while (site != neighbors[j]);
+            }
         }
-        
-        if (row < n && opened[c2i(row + 1, col)]) {
-            uf.union(pos, c2i(row + 1, col));
-            uf2.union(pos, c2i(row + 1, col));
+
+        // swapping successors joins two distinct circular lists
+        for (int j = 0; j < count; j++) {
+            int t = next[pos];
+            next[pos] = next[neighbors[j]];
+            next[neighbors[j]] = t;
         }
-        
-        if (col > 1 && opened[c2i(row, col - 1)]) {
-            uf.union(pos, c2i(row, col - 1));
-            uf2.union(pos, c2i(row, col - 1));
+    }
+
+    // records site if it is open and its cluster is not recorded yet
+    private int addNeighbor(int site, int count) {
+        if (!opened.get(site))
+            return count;
+        int root = uf.find(site);
+        for (int j = 0; j < count; j++) {
+            if (roots[j] == root)
+                return count;
         }
+        neighbors[count] = site;
+        roots[count] = root;
+        return count + 1;
     }
 
     public boolean isOpen(int row, int col) { // is site (row, col) open?
         checkCoordinate(row);
         checkCoordinate(col);
-        return opened[c2i(row, col)];
+        return opened.get(c2i(row, col));
+    }
+
+    public int numberOfOpenSites() { // number of open sites
+        return openSites;
     }
 
     public boolean isFull(int row, int col) { // is site (row, col) full?
-        return isOpen(row, col) && uf2.connected(0, c2i(row, col));
+        return isOpen(row, col) && (uf.flags(c2i(row, col)) & PercolationUF.TOP) != 0;
     }
 
     public boolean percolates() { // does the system percolate?
-        return uf.connected(0, n * n + 1);
+        return percolates;
+    }
+
+    public int largestCluster() { // number of sites in the largest open cluster
+        if (!clusters)
+            throw new UnsupportedOperationException();
+        return largestCluster;
     }
 
     private void checkCoordinate(int x) {
@@ -90,7 +245,7 @@ public class Percolation {
 
         assert (!p.percolates());
         assert (!p.isOpen(2, 2));
-        assert (p.isFull(3, 3));
+        assert (!p.isFull(3, 3));
 
         p.open(2, 2);
         p.open(3, 2);
@@ -100,5 +255,102 @@ public class Percolation {
         p.open(1, 2);
         assert (p.isFull(1,2));
         assert (p.percolates());
+
+        p.reset();
+        assert (!p.percolates());
+        assert (!p.isOpen(2, 2));
+        assert (!p.isFull(1, 2));
+
+        Percolation c = new Percolation(3, true);
+        assert (c.largestCluster() == 0);
+        c.open(1, 1);
+        c.open(3, 3);
+        c.open(2, 1);
+        assert (c.largestCluster() == 2);
+        c.open(2, 2);
+        c.open(2, 3);
+        assert (c.largestCluster() == 5);
+
+        Percolation one = new Percolation(5, true);
+        Percolation all = new Percolation(5, true);
+        int[] sites = { 22, 2, 7, 12, 7, 17, 0, 24 };
+        for (int site : sites) {
+            one.open(site / 5 + 1, site % 5 + 1);
+        }
+        all.openAll(sites);
+        assert (all.percolates() && one.percolates());
+        assert (all.numberOfOpenSites() == 7);
+        assert (all.largestCluster() == one.largestCluster());
+        for (int row = 1; row <= 5; row++) {
+            for (int col = 1; col <= 5; col++) {
+                assert (all.isFull(row, col) == one.isFull(row, col));
+            }
+        }
+        try {
+            all.openAll(new int[] { 3, 25 });
+            assert false;
+        } catch (IndexOutOfBoundsException e) {
+            assert (!all.isOpen(1, 4)); // nothing opened
+        }
+
+        // on a 64-by-64 grid fewer than 64 sites take the sorted path: most
+        // of a column, given backwards, a repeat and a few strays
+        Percolation oneBig = new Percolation(64, true);
+        Percolation allBig = new Percolation(64, true);
+        int[] few = new int[59 + 4];
+        for (int j = 0; j < 59; j++) {
+            few[j] = (63 - j) * 64 + 9;
+        }
+        few[59] = 63 * 64 + 9;
+        few[60] = 64 + 9;
+        few[61] = 0;
+        few[62] = 4095;
+        assert (few.length < 64 * 64 >>> 6);
+        for (int site : few) {
+            oneBig.open(site / 64 + 1, site % 64 + 1);
+        }
+        allBig.openAll(few);
+        assert (!allBig.percolates() && !oneBig.percolates());
+        assert (allBig.numberOfOpenSites() == oneBig.numberOfOpenSites());
+        assert (allBig.largestCluster() == oneBig.largestCluster());
+        for (int row = 1; row <= 64; row++) {
+            for (int col = 1; col <= 64; col++) {
+                assert (allBig.isOpen(row, col) == oneBig.isOpen(row, col));
+                assert (allBig.isFull(row, col) == oneBig.isFull(row, col));
+            }
+        }
+        allBig.openAll(new int[] { 4 * 64 + 9, 9, 2 * 64 + 9, 3 * 64 + 9 });
+        for (int row = 1; row <= 5; row++) {
+            oneBig.open(row, 10);
+        }
+        assert (allBig.percolates() && oneBig.percolates());
+        assert (allBig.largestCluster() == 64);
+
+        // a null listener is rejected before a 2^15-by-2^15 grid is allocated
+        try {
+            new Percolation(1 << 15, (PercolationListener) null);
+            assert false;
+        } catch (NullPointerException npe) {
+            // good
+        }
+
+        final StringBuilder events = new StringBuilder();
+        Percolation e = new Percolation(3, new PercolationListener() {
+            public void filled(int row, int col) {
+                events.append(" f").append(row).append(col);
+            }
+
+            public void opened(int row, int col, int largestCluster) {
+                events.append(" o").append(row).append(col).append('/').append(largestCluster);
+            }
+        });
+        e.open(3, 2);
+        e.open(2, 2);
+        e.open(2, 3);
+        e.open(1, 2);
+        assert (events.toString().equals(" o32/1 o22/2 o23/3 f12 f22 f23 f32 o12/4")) : events;
+        e.open(3, 3);
+        e.open(1, 1);
+        assert (events.toString().endsWith(" f33 o33/5 f11 o11/6")) : events;
     }
-}
\ No newline at end of file
+}
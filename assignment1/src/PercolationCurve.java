@@ -0,0 +1,179 @@
+import java.util.SplittableRandom;
+
+import edu.princeton.cs.algs4.StdRandom;
+import edu.princeton.cs.algs4.Stopwatch;
+
+/**
+ * Estimates the whole percolation probability curve P(p) of an n-by-n grid
+ * with the Newman-Ziff method.
+ * <p>
+ * Each trial opens every site once, in a random order, and records after how
+ * many open sites k the grid first percolates (and, if requested, the size of
+ * the largest open cluster after every k). Averaging over trials gives the
+ * "fixed number of open sites" estimates Q(k); the estimate at any site
+ * vacancy probability p is then the binomial average of Q(k) over k, so one
+ * sweep per trial covers every p instead of one experiment per value of p.
+ */
+public class PercolationCurve {
+    // binomial weights below this fraction of the peak weight are ignored
+    private static final double NEGLIGIBLE = 1e-15;
+
+    private final int sites;
+    private final double[] spanning; // Q(k): fraction of trials percolating with k open sites
+    private final double[] largest;  // mean largest cluster fraction with k open sites, or null
+
+    public PercolationCurve(int n, int trials) {
+        this(n, trials, false, StdRandom.uniform(Integer.MAX_VALUE));
+    }
+
+    // with clusters set every trial runs until all sites are open to record
+    // cluster sizes; otherwise it stops as soon as the grid percolates
+    public PercolationCurve(int n, int trials, boolean clusters, long seed) {
+        if (n <= 0 || trials <= 0)
+            throw new IllegalArgumentException();
+
+        sites = n * n;
+        spanning = new double[sites + 1];
+        largest = clusters ? new double[sites + 1] : null;
+
+        Percolation grid = new Percolation(n, clusters);
+        int[] order = new int[sites];
+        SplittableRandom root = new SplittableRandom(seed);
+
+        for (int t = 0; t < trials; t++) {
+            SplittableRandom random = root.split();
+            grid.reset();
+            for (int j = 0; j < sites; j++) {
+                order[j] = j;
+            }
+
+            boolean percolated = false;
+            for (int k = 0; k < sites; k++) {
+                int r = k + random.nextInt(sites - k);
+                int site = order[r];
+                order[r] = order[k];
+                order[k] = site;
+
+                grid.open(site / n + 1, site % n + 1);
+                if (!percolated && grid.percolates()) {
+                    percolated = true;
+                    spanning[k + 1]++; // turned into a cumulative count below
+                    if (!clusters)
+                        break;
+                }
+                if (clusters)
+                    largest[k + 1] += grid.largestCluster();
+            }
+        }
+
+        double count = 0;
+        for (int k = 0; k <= sites; k++) {
+            count += spanning[k];
+            spanning[k] = count / trials;
+            if (clusters)
+                largest[k] /= (double) trials * sites;
+        }
+    }
+
+    public int sites() { // number of sites in the grid
+        return sites;
+    }
+
+    public double spanning(int k) { // probability of percolating with exactly
+                                    // k open sites
+        checkOpenSites(k);
+        return spanning[k];
+    }
+
+    public double percolationProbability(double p) { // probability of
+                                                      // percolating when each
+                                                      // site is open with
+                                                      // probability p
+        checkProbability(p);
+        return binomialAverage(spanning, p);
+    }
+
+    public double largestCluster(int k) { // mean fraction of sites in the
+                                          // largest cluster with k open sites
+        checkOpenSites(k);
+        checkClusters();
+        return largest[k];
+    }
+
+    public double largestCluster(double p) { // mean fraction of sites in the
+                                             // largest cluster when each site
+                                             // is open with probability p
+        checkProbability(p);
+        checkClusters();
+        return binomialAverage(largest, p);
+    }
+
+    // sum over k of Binomial(sites, p)(k) * q[k]. The weights are built from
+    // the most likely k outwards with the ratio B(k) / B(k - 1), which avoids
+    // factorials and stops once the tails no longer contribute.
+    private double binomialAverage(double[] q, double p) {
+        if (p == 0.0)
+            return q[0];
+        if (p == 1.0)
+            return q[sites];
+
+        int mode = Math.min(sites, (int) ((sites + 1) * p));
+        double odds = p / (1.0 - p);
+        double sum = q[mode];
+        double norm = 1.0;
+
+        double w = 1.0;
+        for (int k = mode + 1; k <= sites; k++) {
+            w *= (double) (sites - k + 1) / k * odds;
+            if (w < NEGLIGIBLE)
+                break;
+            sum += w * q[k];
+            norm += w;
+        }
+
+        w = 1.0;
+        for (int k = mode - 1; k >= 0; k--) {
+            w *= (double) (k + 1) / (sites - k) / odds;
+            if (w < NEGLIGIBLE)
+                break;
+            sum += w * q[k];
+            norm += w;
+        }
+
+        return sum / norm;
+    }
+
+    private void checkOpenSites(int k) {
+        if (k < 0 || k > sites)
+            throw new IndexOutOfBoundsException();
+    }
+
+    private void checkProbability(double p) {
+        if (!(p >= 0.0 && p <= 1.0))
+            throw new IllegalArgumentException();
+    }
+
+    private void checkClusters() {
+        if (largest == null)
+            throw new UnsupportedOperationException();
+    }
+
+    public static void main(String[] args) { // prints P(p) and the largest
+                                             // cluster fraction for p in
+                                             // [0.5, 0.7]
+        int n = Integer.parseInt(args[0]);
+        int t = Integer.parseInt(args[1]);
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : StdRandom.uniform(Integer.MAX_VALUE);
+
+        Stopwatch stopwatch = new Stopwatch();
+        PercolationCurve curve = new PercolationCurve(n, t, true, seed);
+
+        for (int j = 0; j <= 20; j++) {
+            double p = 0.5 + j * 0.01;
+            System.out.println(String.format("p = %.2f  P(p) = %.4f  largest = %.4f", p,
+                    curve.percolationProbability(p), curve.largestCluster(p)));
+        }
+
+        System.out.println("Stopwatch = " + stopwatch.elapsedTime() + " seconds");
+    }
+}
@@ -0,0 +1,15 @@
+/**
+ * Receives the changes each Percolation.open() makes, so that a client can
+ * keep its own view of the grid up to date with work proportional to what
+ * changed instead of rescanning all n^2 sites.
+ */
+public interface PercolationListener {
+    // site (row, col) became full: the opened site itself, or a site of a
+    // cluster the opened site connected to the top. Called from inside
+    // open(), before the grid is updated, so do not query the grid here.
+    void filled(int row, int col);
+
+    // site (row, col) was opened; called after the filled() calls of the
+    // same open(), once the grid is up to date
+    void opened(int row, int col, int largestCluster);
+}
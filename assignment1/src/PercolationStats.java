@@ -1,73 +1,308 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
 import edu.princeton.cs.algs4.StdRandom;
-import edu.princeton.cs.algs4.StdStats;
 import edu.princeton.cs.algs4.Stopwatch;
 
 public class PercolationStats {
-    private double[] results;
-    private double mean, stdev, sqrtT;
+    // number of trials a fork/join task runs without splitting further
+    private static final int TRIALS_PER_TASK = 4;
+    // trials run between two checks of the confidence interval width
+    private static final int TRIALS_PER_BATCH = 64;
+
+    private final RunningStats stats = new RunningStats();
 
     public PercolationStats(int n, int trials) { // perform trials independent
                                                  // experiments on an n-by-n
                                                  // grid
-        if (n <= 0 || trials <= 0)
+        this(n, trials, 1, StdRandom.uniform(Integer.MAX_VALUE));
+    }
+
+    // perform trials independent experiments on an n-by-n grid using up to
+    // parallelism threads; the results depend only on seed, never on the
+    // number of threads
+    public PercolationStats(int n, int trials, int parallelism, long seed) {
+        this(n, trials, parallelism, seed, 0.0);
+    }
+
+    // as above, but stop early, after a whole batch of trials, once the 95%
+    // confidence interval is no wider than width; trials() tells how many ran
+    public PercolationStats(int n, int trials, int parallelism, long seed, double width) {
+        this(gridRunner(n), trials, parallelism, seed, width);
+    }
+
+    // perform trials independent experiments of site or bond percolation on
+    // lattice, otherwise as above
+    public PercolationStats(Lattice lattice, boolean bonds, int trials, int parallelism, long seed,
+            double width) {
+        this(latticeRunner(lattice, bonds), trials, parallelism, seed, width);
+    }
+
+    private PercolationStats(Supplier<TrialRunner> runner, int trials, int parallelism, long seed, double width) {
+        if (trials <= 0 || parallelism <= 0 || !(width >= 0.0))
             throw new IllegalArgumentException();
 
-        results = new double[trials];
+        // without a target width all trials form a single batch
+        int batch = width > 0.0 ? TRIALS_PER_BATCH : trials;
+
+        // one runner per worker thread, reused across its trials; a single
+        // thread runs the trials inline, without a pool
+        TrialRunner serial = parallelism == 1 ? runner.get() : null;
+        ThreadLocal<TrialRunner> runners = parallelism == 1 ? null : ThreadLocal.withInitial(runner);
+        ForkJoinPool pool = parallelism == 1 ? null : new ForkJoinPool(parallelism);
+        SplittableRandom root = new SplittableRandom(seed);
+        try {
+            for (int done = 0; done < trials; done += batch) {
+                // one stream per trial, split off in trial order so that
+                // which trial sees which random numbers does not depend on
+                // scheduling
+                SplittableRandom[] streams = new SplittableRandom[Math.min(batch, trials - done)];
+                for (int t = 0; t < streams.length; t++) {
+                    streams[t] = root.split();
+                }
+
+                // the task tree, and so the order in which partial results
+                // are merged, depends only on the batch size
+                if (pool == null)
+                    stats.merge(Trials.serial(serial, streams, 0, streams.length));
+                else
+                    stats.merge(pool.invoke(new Trials(runners, streams, 0, streams.length)));
 
-        for (int t = 0; t < trials; t++) {
-            results[t] = runTrial(n);
+                if (confidenceHi() - confidenceLo() <= width)
+                    break;
+            }
+        } finally {
+            if (pool != null)
+                pool.shutdown();
         }
+    }
 
-        mean = StdStats.mean(results);
-        stdev = StdStats.stddev(results);
-        sqrtT = Math.sqrt(trials);
+    public int trials() { // number of trials actually run
+        return (int) stats.count();
     }
 
     public double mean() { // sample mean of percolation threshold
-        return mean;
+        return stats.mean();
     }
 
     public double stddev() { // sample standard deviation of percolation
                              // threshold
-        return stdev;
+        return stats.stddev();
     }
 
     public double confidenceLo() { // low endpoint of 95% confidence interval
-        return mean - (1.96 * stdev / sqrtT);
+        return stats.confidenceLo();
     }
 
     public double confidenceHi() { // high endpoint of 95% confidence interval
-        return mean + (1.96 * stdev / sqrtT);
+        return stats.confidenceHi();
+    }
+
+    private static class Trials extends RecursiveTask<RunningStats> {
+        private static final long serialVersionUID = 1L;
+
+        private final ThreadLocal<TrialRunner> runners;
+        private final SplittableRandom[] streams;
+        private final int lo, hi; // trials [lo, hi)
+
+        Trials(ThreadLocal<TrialRunner> runners, SplittableRandom[] streams, int lo, int hi) {
+            this.runners = runners;
+            this.streams = streams;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected RunningStats compute() {
+            if (hi - lo <= TRIALS_PER_TASK)
+                return leaf(runners.get(), streams, lo, hi);
+
+            int mid = (lo + hi) >>> 1;
+            Trials left = new Trials(runners, streams, lo, mid);
+            Trials right = new Trials(runners, streams, mid, hi);
+            invokeAll(left, right);
+            RunningStats merged = left.join();
+            merged.merge(right.join());
+            return merged;
+        }
+
+        // the same tree of merges as compute(), walked in the calling thread
+        static RunningStats serial(TrialRunner runner, SplittableRandom[] streams, int lo, int hi) {
+            if (hi - lo <= TRIALS_PER_TASK)
+                return leaf(runner, streams, lo, hi);
+
+            int mid = (lo + hi) >>> 1;
+            RunningStats merged = serial(runner, streams, lo, mid);
+            merged.merge(serial(runner, streams, mid, hi));
+            return merged;
+        }
+
+        private static RunningStats leaf(TrialRunner runner, SplittableRandom[] streams, int lo, int hi) {
+            RunningStats leaf = new RunningStats();
+            for (int t = lo; t < hi; t++) {
+                leaf.add(runner.run(streams[t]));
+            }
+            return leaf;
+        }
+    }
+
+    private static Supplier<TrialRunner> gridRunner(int n) {
+        if (n <= 0)
+            throw new IllegalArgumentException();
+        return () -> new GridRunner(n);
     }
 
-    private double runTrial(int n) {
-        Percolation p = new Percolation(n);
-        int openSites = 0;
-        boolean[] open = new boolean[n * n];
+    private static Supplier<TrialRunner> latticeRunner(Lattice lattice, boolean bonds) {
+        if (lattice == null)
+            throw new NullPointerException();
+        return () -> new LatticeRunner(lattice, bonds);
+    }
 
-        while (true) {
-            int row = StdRandom.uniform(n) + 1;
-            int col = StdRandom.uniform(n) + 1;
+    // per-thread trial state: a system and an element order, reused across
+    // trials
+    private abstract static class TrialRunner {
+        private final int[] elements;
+        private final int total; // elements that can actually be opened
 
-            // if (!p.isOpen(row, col)) {
-            if (!open[(row - 1) * n + col - 1]) {
-                openSites++;
-                open[(row - 1) * n + col - 1] = true;
-                p.open(row, col);
-                if (p.percolates()) {
-                    return (double) openSites / (double) (n * n);
+        TrialRunner(int size, int total) {
+            this.elements = new int[size];
+            this.total = total;
+        }
+
+        abstract void reset();
+
+        abstract boolean open(int e); // false if e cannot be opened
+
+        abstract boolean percolates();
+
+        // opens elements in a uniformly random order until the system
+        // percolates and returns the fraction of open elements. The order is
+        // an incremental Fisher-Yates shuffle of all elements that stops once
+        // the system percolates, so every draw opens a new element and none
+        // is rejected.
+        double run(SplittableRandom random) {
+            reset();
+            if (percolates())
+                return 0.0;
+
+            // start each trial from the identity so a trial's result depends
+            // only on its stream, not on which trials ran before it
+            for (int j = 0; j < elements.length; j++) {
+                elements[j] = j;
+            }
+
+            int opened = 0;
+            for (int k = 0; k < elements.length; k++) {
+                int r = k + random.nextInt(elements.length - k);
+                int e = elements[r];
+                elements[r] = elements[k];
+                elements[k] = e;
+
+                if (open(e)) {
+                    opened++;
+                    if (percolates()) {
+                        return (double) opened / (double) total;
+                    }
                 }
             }
+            throw new IllegalStateException(); // a fully open system percolates
+        }
+    }
+
+    private static class GridRunner extends TrialRunner {
+        private final int n;
+        private final Percolation grid;
+
+        GridRunner(int n) {
+            super(n * n, n * n);
+            this.n = n;
+            this.grid = new Percolation(n);
+        }
+
+        @Override
+        void reset() {
+            grid.reset();
+        }
+
+        @Override
+        boolean open(int site) {
+            grid.open(site / n + 1, site % n + 1);
+            return true;
+        }
+
+        @Override
+        boolean percolates() {
+            return grid.percolates();
+        }
+    }
+
+    private static class LatticeRunner extends TrialRunner {
+        private final LatticePercolation system;
+
+        LatticeRunner(Lattice lattice, boolean bonds) {
+            super(bonds ? lattice.bonds() : lattice.sites(), bonds ? existingBonds(lattice) : lattice.sites());
+            this.system = new LatticePercolation(lattice, bonds);
+        }
+
+        private static int existingBonds(Lattice lattice) {
+            int count = 0;
+            for (int bond = 0; bond < lattice.bonds(); bond++) {
+                if (lattice.bondEnd(bond) >= 0)
+                    count++;
+            }
+            return count;
+        }
+
+        @Override
+        void reset() {
+            system.reset();
+        }
+
+        @Override
+        boolean open(int e) {
+            return system.open(e);
+        }
+
+        @Override
+        boolean percolates() {
+            return system.percolates();
         }
     }
 
     public static void main(String[] args) { // test client (described below)
         int n = Integer.parseInt(args[0]);
         int t = Integer.parseInt(args[1]);
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : StdRandom.uniform(Integer.MAX_VALUE);
+        double width = args.length > 4 ? Double.parseDouble(args[4]) : 0.0;
+        // square, triangular or cubic, with a -bonds suffix for bond
+        // percolation; the plain n-by-n grid if not given
+        String lattice = args.length > 5 ? args[5] : null;
 
         Stopwatch stopwatch = new Stopwatch();
-        PercolationStats ps = new PercolationStats(n, t);
+        PercolationStats ps;
+        if (lattice == null) {
+            ps = new PercolationStats(n, t, threads, seed, width);
+        } else {
+            boolean bonds = lattice.endsWith("-bonds");
+            if (bonds)
+                lattice = lattice.substring(0, lattice.length() - "-bonds".length());
+
+            Lattice l;
+            if (lattice.equals("square"))
+                l = new SquareLattice(n);
+            else if (lattice.equals("triangular"))
+                l = new TriangularLattice(n);
+            else if (lattice.equals("cubic"))
+                l = new CubicLattice(n);
+            else
+                throw new IllegalArgumentException("unknown lattice " + lattice);
+            ps = new PercolationStats(l, bonds, t, threads, seed, width);
+        }
 
+        System.out.println("trials                  = " + ps.trials());
         System.out.println("mean                    = " + ps.mean());
         System.out.println("stddev                  = " + ps.stddev());
         System.out.println("95% confidence interval = " + ps.confidenceLo() + ", " + ps.confidenceHi());
@@ -0,0 +1,129 @@
+/**
+ * Weighted quick-union with path halving, specialized for percolation.
+ * <p>
+ * Everything lives in a single int[]: a non-negative entry is the parent of
+ * the site, a root stores ~(rank << 2 | flags) where flags records whether
+ * the component touches the top and/or the bottom row. This replaces the
+ * virtual top/bottom sites (and the second union-find that was needed to
+ * avoid backwash) with two bits on the root. Component sizes are only kept,
+ * in a second array indexed by root, when asked for.
+ */
+public class PercolationUF {
+    public static final int TOP = 1;
+    public static final int BOTTOM = 2;
+
+    private static final int FLAGS = TOP | BOTTOM;
+
+    private final int[] parent;
+    private final int[] size; // component size by root, null if not tracked
+
+    public PercolationUF(int n) { // n singleton components, no flags set
+        this(n, false);
+    }
+
+    public PercolationUF(int n, boolean sizes) { // optionally track sizes
+        if (n < 0)
+            throw new IllegalArgumentException();
+        parent = new int[n];
+        size = sizes ? new int[n] : null;
+        reset();
+    }
+
+    public int size() {
+        return parent.length;
+    }
+
+    public void reset() { // back to n singleton components
+        java.util.Arrays.fill(parent, ~0);
+        if (size != null)
+            java.util.Arrays.fill(size, 1);
+    }
+
+    public int find(int p) {
+        int q;
+        while ((q = parent[p]) >= 0) {
+            int r = parent[q];
+            if (r < 0)
+                return q;
+            parent[p] = r;
+            p = r;
+        }
+        return p;
+    }
+
+    public boolean connected(int p, int q) {
+        return find(p) == find(q);
+    }
+
+    public int flags(int p) { // TOP/BOTTOM flags of the component of p
+        return ~parent[find(p)] & FLAGS;
+    }
+
+    public int componentSize(int p) { // requires size tracking
+        if (size == null)
+            throw new UnsupportedOperationException();
+        return size[find(p)];
+    }
+
+    public int mark(int p, int flags) { // add flags to the component of p
+        int root = find(p);
+        parent[root] &= ~(flags & FLAGS);
+        return ~parent[root] & FLAGS;
+    }
+
+    public int union(int p, int q) { // returns the flags of the merged component
+        int i = find(p);
+        int j = find(q);
+        int bi = ~parent[i];
+        int bj = ~parent[j];
+        int flags = (bi | bj) & FLAGS;
+
+        if (i == j)
+            return flags;
+
+        int ri = bi >>> 2;
+        int rj = bj >>> 2;
+        if (ri < rj) {
+            parent[i] = j;
+            parent[j] = ~(bj | flags);
+            if (size != null)
+                size[j] += size[i];
+        } else {
+            parent[j] = i;
+            parent[i] = ri > rj ? ~(bi | flags) : ~((ri + 1) << 2 | flags);
+            if (size != null)
+                size[i] += size[j];
+        }
+        return flags;
+    }
+
+    public static void main(String[] args) {
+        PercolationUF uf = new PercolationUF(6);
+
+        assert uf.flags(0) == 0;
+        assert uf.mark(0, TOP) == TOP;
+        assert uf.mark(5, BOTTOM) == BOTTOM;
+
+        assert uf.union(0, 1) == TOP;
+        assert uf.union(2, 3) == 0;
+        assert uf.union(3, 1) == TOP;
+        assert uf.flags(2) == TOP;
+        assert !uf.connected(2, 5);
+        assert uf.union(4, 5) == BOTTOM;
+        assert uf.union(4, 0) == (TOP | BOTTOM);
+        assert uf.connected(2, 5);
+
+        uf.reset();
+        assert uf.flags(0) == 0;
+        assert !uf.connected(0, 1);
+
+        PercolationUF sized = new PercolationUF(4, true);
+        assert sized.componentSize(0) == 1;
+        sized.union(0, 1);
+        sized.union(2, 1);
+        assert sized.componentSize(0) == 3;
+        assert sized.componentSize(3) == 1;
+        sized.reset();
+        assert sized.componentSize(0) == 1;
+    }
+}
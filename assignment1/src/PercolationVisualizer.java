@@ -12,10 +12,12 @@
  *
  *  After each site is opened, it draws full sites in light blue,
  *  open sites (that aren't full) in white, and blocked sites in black,
- *  with with site (1, 1) in the upper left-hand corner.
+ *  with with site (1, 1) in the upper left-hand corner. Only the sites
+ *  an open() changed are repainted, as reported by PercolationListener.
  *
  ******************************************************************************/
 
+import java.awt.Color;
 import java.awt.Font;
 
 import edu.princeton.cs.algs4.In;
@@ -35,16 +37,13 @@ public class PercolationVisualizer {
         StdDraw.filledSquare(n/2.0, n/2.0, n/2.0);
 
         // draw n-by-n grid
-        int opened = 0;
         for (int row = 1; row <= n; row++) {
             for (int col = 1; col <= n; col++) {
                 if (perc.isFull(row, col)) {
                     StdDraw.setPenColor(StdDraw.BOOK_LIGHT_BLUE);
-                    opened++;
                 }
                 else if (perc.isOpen(row, col)) {
                     StdDraw.setPenColor(StdDraw.WHITE);
-                    opened++;
                 }
                 else
                     StdDraw.setPenColor(StdDraw.BLACK);
@@ -52,13 +51,48 @@ public class PercolationVisualizer {
             }
         }
 
-        // write status text
+        drawStatus(perc, n);
+    }
+
+    // write status text
+    private static void drawStatus(Percolation perc, int n) {
+        StdDraw.setPenColor(StdDraw.WHITE);
+        StdDraw.filledRectangle(n/2.0, -0.025*n, 0.55*n, 0.025*n);
         StdDraw.setFont(new Font("SansSerif", Font.PLAIN, 12));
         StdDraw.setPenColor(StdDraw.BLACK);
-        StdDraw.text(0.25*n, -0.025*n, opened + " open sites");
+        StdDraw.text(0.25*n, -0.025*n, perc.numberOfOpenSites() + " open sites");
         if (perc.percolates()) StdDraw.text(0.75*n, -0.025*n, "percolates");
         else                   StdDraw.text(0.75*n, -0.025*n, "does not percolate");
+    }
+
+    private static void drawSite(int n, int row, int col, Color color) {
+        StdDraw.setPenColor(color);
+        StdDraw.filledSquare(col - 0.5, n - row + 0.5, 0.45);
+    }
+
+    // repaints only the sites each open() changes
+    private static class Repainter implements PercolationListener {
+        private final int n;
+        private Percolation perc;
+        private boolean openedFull;
 
+        Repainter(int n) {
+            this.n = n;
+        }
+
+        @Override
+        public void filled(int row, int col) {
+            drawSite(n, row, col, StdDraw.BOOK_LIGHT_BLUE);
+            openedFull = true; // the opened site is reported first
+        }
+
+        @Override
+        public void opened(int row, int col, int largestCluster) {
+            if (!openedFull)
+                drawSite(n, row, col, StdDraw.WHITE);
+            openedFull = false;
+            drawStatus(perc, n);
+        }
     }
 
     public static void main(String[] args) {
@@ -69,7 +103,9 @@ public class PercolationVisualizer {
         StdDraw.enableDoubleBuffering();
 
         // repeatedly read in sites to open and draw resulting system
-        Percolation perc = new Percolation(n);
+        Repainter repainter = new Repainter(n);
+        Percolation perc = new Percolation(n, repainter);
+        repainter.perc = perc;
         draw(perc, n);
         StdDraw.show();
         StdDraw.pause(DELAY);
@@ -77,7 +113,6 @@ public class PercolationVisualizer {
             int i = in.readInt();
             int j = in.readInt();
             perc.open(i, j);
-            draw(perc, n);
             StdDraw.show();
             StdDraw.pause(DELAY);
         }
@@ -0,0 +1,78 @@
+/**
+ * Mean and sample standard deviation of a stream of values, computed with
+ * Welford's update without storing the values. Two accumulators can be merged
+ * (Chan et al.), so each thread can keep its own and combine them at the end.
+ */
+public class RunningStats {
+    private long count;
+    private double mean;
+    private double m2; // sum of squared differences from the mean
+
+    public void add(double x) {
+        count++;
+        double delta = x - mean;
+        mean += delta / count;
+        m2 += delta * (x - mean);
+    }
+
+    public void merge(RunningStats that) { // add all values seen by that
+        if (that.count == 0)
+            return;
+        if (count == 0) {
+            count = that.count;
+            mean = that.mean;
+            m2 = that.m2;
+            return;
+        }
+
+        long total = count + that.count;
+        double delta = that.mean - mean;
+        mean += delta * that.count / total;
+        m2 += that.m2 + delta * delta * ((double) count * that.count / total);
+        count = total;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public double mean() { // NaN if no values were added
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    public double stddev() { // NaN unless at least two values were added
+        return count < 2 ? Double.NaN : Math.sqrt(m2 / (count - 1));
+    }
+
+    public double confidenceLo() { // low endpoint of 95% confidence interval
+        return mean() - 1.96 * stddev() / Math.sqrt(count);
+    }
+
+    public double confidenceHi() { // high endpoint of 95% confidence interval
+        return mean() + 1.96 * stddev() / Math.sqrt(count);
+    }
+
+    public static void main(String[] args) {
+        RunningStats all = new RunningStats();
+        RunningStats left = new RunningStats();
+        RunningStats right = new RunningStats();
+        double[] xs = { 2, 4, 4, 4, 5, 5, 7, 9 };
+
+        for (int j = 0; j < xs.length; j++) {
+            all.add(xs[j]);
+            if (j < 3)
+                left.add(xs[j]);
+            else
+                right.add(xs[j]);
+        }
+        left.merge(right);
+
+        assert all.count() == 8;
+        assert Math.abs(all.mean() - 5.0) < 1e-12;
+        assert Math.abs(all.stddev() - Math.sqrt(32.0 / 7)) < 1e-12;
+        assert left.count() == 8;
+        assert Math.abs(left.mean() - all.mean()) < 1e-12;
+        assert Math.abs(left.stddev() - all.stddev()) < 1e-12;
+        assert Double.isNaN(new RunningStats().mean());
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * Open/blocked state of a fixed number of sites, one bit per site packed into
+ * a long[]. Unlike java.util.BitSet it never grows and does no bounds checks
+ * beyond those of the array itself.
+ */
+public class SiteBits {
+    private final long[] words;
+    private final int size;
+
+    public SiteBits(int size) { // size sites, all clear
+        if (size < 0)
+            throw new IllegalArgumentException();
+        this.size = size;
+        this.words = new long[(size + 63) >>> 6];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean get(int i) {
+        return (words[i >>> 6] & (1L << i)) != 0;
+    }
+
+    public void set(int i) {
+        words[i >>> 6] |= 1L << i;
+    }
+
+    public void clear(int i) {
+        words[i >>> 6] &= ~(1L << i);
+    }
+
+    public void clear() { // clear all sites
+        java.util.Arrays.fill(words, 0L);
+    }
+
+    public int cardinality() { // number of set sites
+        int count = 0;
+        for (long w : words) {
+            count += Long.bitCount(w);
+        }
+        return count;
+    }
+
+    public int cardinality(int from, int to) { // number of set sites in [from, to)
+        if (from >= to)
+            return 0;
+
+        int first = from >>> 6;
+        int last = (to - 1) >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+
+        if (first == last)
+            return Long.bitCount(words[first] & firstMask & lastMask);
+
+        int count = Long.bitCount(words[first] & firstMask);
+        for (int j = first + 1; j < last; j++) {
+            count += Long.bitCount(words[j]);
+        }
+        return count + Long.bitCount(words[last] & lastMask);
+    }
+
+    public int nextSetBit(int from) { // first set site >= from, or -1
+        if (from >= size)
+            return -1;
+
+        int j = from >>> 6;
+        long w = words[j] & (-1L << from);
+        while (w == 0) {
+            if (++j == words.length)
+                return -1;
+            w = words[j];
+        }
+        return (j << 6) + Long.numberOfTrailingZeros(w);
+    }
+
+    public static void main(String[] args) {
+        SiteBits bits = new SiteBits(200);
+
+        bits.set(0);
+        bits.set(63);
+        bits.set(64);
+        bits.set(199);
+        assert bits.get(63) && bits.get(64) && !bits.get(65);
+        assert bits.cardinality() == 4;
+        assert bits.cardinality(1, 64) == 1;
+        assert bits.cardinality(0, 200) == 4;
+        assert bits.cardinality(64, 64) == 0;
+        assert bits.cardinality(64, 65) == 1;
+        assert bits.nextSetBit(1) == 63;
+        assert bits.nextSetBit(65) == 199;
+
+        bits.clear(63);
+        assert !bits.get(63);
+        assert bits.nextSetBit(1) == 64;
+
+        bits.clear();
+        assert bits.cardinality() == 0;
+        assert bits.nextSetBit(0) == -1;
+    }
+}
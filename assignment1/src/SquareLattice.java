@@ -0,0 +1,51 @@
+/**
+ * n-by-n square lattice, each site joined to the sites left, right, above and
+ * below it. Site row * n + col, rows and columns counted from 0.
+ */
+public class SquareLattice extends Lattice {
+    private final int n;
+
+    public SquareLattice(int n) {
+        if (n <= 0)
+            throw new IllegalArgumentException();
+        this.n = n;
+    }
+
+    @Override
+    public int sites() {
+        return n * n;
+    }
+
+    @Override
+    public int degree() {
+        return 4;
+    }
+
+    @Override
+    public int neighbor(int site, int k) {
+        int row = site / n;
+        int col = site % n;
+        switch (k) {
+        case 0:
+            return col < n - 1 ? site + 1 : -1;
+        case 1:
+            return row < n - 1 ? site + n : -1;
+        case 2:
+            return col > 0 ? site - 1 : -1;
+        case 3:
+            return row > 0 ? site - n : -1;
+        default:
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    @Override
+    public boolean isTop(int site) {
+        return site < n;
+    }
+
+    @Override
+    public boolean isBottom(int site) {
+        return site >= n * (n - 1);
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * n-by-n triangular lattice on a rhombus, each site joined to six others:
+ * left, right, the two below at columns col - 1 and col, and the two above at
+ * columns col and col + 1. Site percolation here is percolation of the cells
+ * of a hexagonal tiling. Site row * n + col, rows and columns counted from 0.
+ */
+public class TriangularLattice extends Lattice {
+    private final int n;
+
+    public TriangularLattice(int n) {
+        if (n <= 0)
+            throw new IllegalArgumentException();
+        this.n = n;
+    }
+
+    @Override
+    public int sites() {
+        return n * n;
+    }
+
+    @Override
+    public int degree() {
+        return 6;
+    }
+
+    @Override
+    public int neighbor(int site, int k) {
+        int row = site / n;
+        int col = site % n;
+        switch (k) {
+        case 0:
+            return col < n - 1 ? site + 1 : -1;
+        case 1:
+            return row < n - 1 ? site + n : -1;
+        case 2:
+            return row < n - 1 && col > 0 ? site + n - 1 : -1;
+        case 3:
+            return col > 0 ? site - 1 : -1;
+        case 4:
+            return row > 0 ? site - n : -1;
+        case 5:
+            return row > 0 && col < n - 1 ? site - n + 1 : -1;
+        default:
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    @Override
+    public boolean isTop(int site) {
+        return site < n;
+    }
+
+    @Override
+    public boolean isBottom(int site) {
+        return site >= n * (n - 1);
+    }
+}
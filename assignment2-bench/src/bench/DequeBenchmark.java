@@ -0,0 +1,343 @@
+/******************************************************************************
+ *  Compilation:  Eclipse project assignment2-bench (annotation processing
+ *                must be on so JMH generates its harness)
+ *  Execution:    java bench.DequeBenchmark [JMH options]
+ *  Dependencies: assignment2, jmh-core, jmh-generator-annprocess
+ *
+ *  Deque operations on the linked Deque, ResizingArrayDeque, the unboxed
+ *  IntDeque and LongDeque, and WorkStealingDeque (uncontended, from its
+ *  owner's thread): one add and one remove on a deque held at a steady
+ *  size, growing an empty deque to that size and draining it again, and
+ *  iterating over it. WorkStealingDeque has no addFirst(), so it skips
+ *  addFirstRemoveLast. main() adds the GC profiler, so gc.alloc.rate.norm
+ *  gives the bytes allocated per call next to its time.
+ *
+ ******************************************************************************/
+
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// one subclass per implementation, so that each sees its own handles as
+// constants; each adds a constant item of its own type
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class DequeBenchmark {
+    @Param({ "16", "65536" })
+    private int size;
+
+    private Object deque; // held at size items
+
+    abstract Object create() throws Throwable;
+
+    abstract void addLast(Object d) throws Throwable;
+
+    abstract void removeFirst(Object d, Blackhole bh) throws Throwable;
+
+    abstract void removeLast(Object d, Blackhole bh) throws Throwable;
+
+    abstract void walk(Object d, Blackhole bh) throws Throwable; // iterate
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Throwable {
+        deque = create();
+        for (int j = 0; j < size; j++) {
+            addLast(deque);
+        }
+    }
+
+    @Benchmark
+    public void addLastRemoveFirst(Blackhole bh) throws Throwable { // as a
+                                                                    // queue
+        addLast(deque);
+        removeFirst(deque, bh);
+    }
+
+    @Benchmark
+    public void addLastRemoveLast(Blackhole bh) throws Throwable { // as a stack
+        addLast(deque);
+        removeLast(deque, bh);
+    }
+
+    @Benchmark
+    public Object growShrink(Blackhole bh) throws Throwable { // every resize on
+                                                              // the way up and
+                                                              // down
+        Object d = create();
+        for (int j = 0; j < size; j++) {
+            addLast(d);
+        }
+        for (int j = 0; j < size; j++) {
+            removeLast(d, bh);
+        }
+        return d;
+    }
+
+    @Benchmark
+    public void iterate(Blackhole bh) throws Throwable {
+        walk(deque, bh);
+    }
+
+    Object deque() { // for the subclasses
+        return deque;
+    }
+
+    // deques that can also add at the front
+    public abstract static class TwoEnded extends DequeBenchmark {
+        abstract void addFirst(Object d) throws Throwable;
+
+        // as a queue, the other way round
+        @Benchmark
+        public void addFirstRemoveLast(Blackhole bh) throws Throwable {
+            addFirst(deque());
+            removeLast(deque(), bh);
+        }
+    }
+
+    public static class Linked extends TwoEnded {
+        private static final Integer ITEM = 42; // boxed once, so only the deque allocates
+        private static final MethodHandle NEW = Handles.constructor("Deque");
+        private static final MethodHandle ADD_FIRST = Handles.method("Deque", "addFirst", void.class,
+                Object.class);
+        private static final MethodHandle ADD_LAST = Handles.method("Deque", "addLast", void.class,
+                Object.class);
+        private static final MethodHandle REMOVE_FIRST = Handles.method("Deque", "removeFirst",
+                Object.class);
+        private static final MethodHandle REMOVE_LAST = Handles.method("Deque", "removeLast",
+                Object.class);
+
+        @Override
+        Object create() throws Throwable {
+            return (Object) NEW.invokeExact();
+        }
+
+        @Override
+        void addFirst(Object d) throws Throwable {
+            ADD_FIRST.invokeExact(d, (Object) ITEM);
+        }
+
+        @Override
+        void addLast(Object d) throws Throwable {
+            ADD_LAST.invokeExact(d, (Object) ITEM);
+        }
+
+        @Override
+        void removeFirst(Object d, Blackhole bh) throws Throwable {
+            bh.consume((Object) REMOVE_FIRST.invokeExact(d));
+        }
+
+        @Override
+        void removeLast(Object d, Blackhole bh) throws Throwable {
+            bh.consume((Object) REMOVE_LAST.invokeExact(d));
+        }
+
+        @Override
+        void walk(Object d, Blackhole bh) {
+            for (Object o : (Iterable<?>) d) {
+                bh.consume(o);
+            }
+        }
+    }
+
+    public static class ResizingArray extends TwoEnded {
+        private static final Integer ITEM = 42; // boxed once, so only the deque allocates
+        private static final MethodHandle NEW = Handles.constructor("ResizingArrayDeque");
+        private static final MethodHandle ADD_FIRST = Handles.method("ResizingArrayDeque", "addFirst", void.class,
+                Object.class);
+        private static final MethodHandle ADD_LAST = Handles.method("ResizingArrayDeque", "addLast", void.class,
+                Object.class);
+        private static final MethodHandle REMOVE_FIRST = Handles.method("ResizingArrayDeque", "removeFirst",
+                Object.class);
+        private static final MethodHandle REMOVE_LAST = Handles.method("ResizingArrayDeque", "removeLast",
+                Object.class);
+
+        @Override
+        Object create() throws Throwable {
+            return (Object) NEW.invokeExact();
+        }
+
+        @Override
+        void addFirst(Object d) throws Throwable {
+            ADD_FIRST.invokeExact(d, (Object) ITEM);
+        }
+
+        @Override
+        void addLast(Object d) throws Throwable {
+            ADD_LAST.invokeExact(d, (Object) ITEM);
+        }
+
+        @Override
+        void removeFirst(Object d, Blackhole bh) throws Throwable {
+            bh.consume((Object) REMOVE_FIRST.invokeExact(d));
+        }
+
+        @Override
+        void removeLast(Object d, Blackhole bh) throws Throwable {
+            bh.consume((Object) REMOVE_LAST.invokeExact(d));
+        }
+
+        @Override
+        void walk(Object d, Blackhole bh) {
+            for (Object o : (Iterable<?>) d) {
+                bh.consume(o);
+            }
+        }
+    }
+
+    public static class Int extends TwoEnded {
+        private static final int ITEM = 42;
+        private static final MethodHandle NEW = Handles.constructor("IntDeque");
+        private static final MethodHandle ADD_FIRST = Handles.method("IntDeque", "addFirst", void.class, int.class);
+        private static final MethodHandle ADD_LAST = Handles.method("IntDeque", "addLast", void.class, int.class);
+        private static final MethodHandle REMOVE_FIRST = Handles.method("IntDeque", "removeFirst", int.class);
+        private static final MethodHandle REMOVE_LAST = Handles.method("IntDeque", "removeLast", int.class);
+        private static final MethodHandle ITERATOR = Handles.method("IntDeque", "iterator",
+                PrimitiveIterator.OfInt.class);
+
+        @Override
+        Object create() throws Throwable {
+            return (Object) NEW.invokeExact();
+        }
+
+        @Override
+        void addFirst(Object d) throws Throwable {
+            ADD_FIRST.invokeExact(d, ITEM);
+        }
+
+        @Override
+        void addLast(Object d) throws Throwable {
+            ADD_LAST.invokeExact(d, ITEM);
+        }
+
+        @Override
+        void removeFirst(Object d, Blackhole bh) throws Throwable {
+            bh.consume((int) REMOVE_FIRST.invokeExact(d));
+        }
+
+        @Override
+        void removeLast(Object d, Blackhole bh) throws Throwable {
+            bh.consume((int) REMOVE_LAST.invokeExact(d));
+        }
+
+        @Override
+        void walk(Object d, Blackhole bh) throws Throwable {
+            PrimitiveIterator.OfInt it = (PrimitiveIterator.OfInt) ITERATOR.invokeExact(d);
+            while (it.hasNext()) {
+                bh.consume(it.nextInt());
+            }
+        }
+    }
+
+    public static class Long extends TwoEnded {
+        private static final long ITEM = 42;
+        private static final MethodHandle NEW = Handles.constructor("LongDeque");
+        private static final MethodHandle ADD_FIRST = Handles.method("LongDeque", "addFirst", void.class, long.class);
+        private static final MethodHandle ADD_LAST = Handles.method("LongDeque", "addLast", void.class, long.class);
+        private static final MethodHandle REMOVE_FIRST = Handles.method("LongDeque", "removeFirst", long.class);
+        private static final MethodHandle REMOVE_LAST = Handles.method("LongDeque", "removeLast", long.class);
+        private static final MethodHandle ITERATOR = Handles.method("LongDeque", "iterator",
+                PrimitiveIterator.OfLong.class);
+
+        @Override
+        Object create() throws Throwable {
+            return (Object) NEW.invokeExact();
+        }
+
+        @Override
+        void addFirst(Object d) throws Throwable {
+            ADD_FIRST.invokeExact(d, ITEM);
+        }
+
+        @Override
+        void addLast(Object d) throws Throwable {
+            ADD_LAST.invokeExact(d, ITEM);
+        }
+
+        @Override
+        void removeFirst(Object d, Blackhole bh) throws Throwable {
+            bh.consume((long) REMOVE_FIRST.invokeExact(d));
+        }
+
+        @Override
+        void removeLast(Object d, Blackhole bh) throws Throwable {
+            bh.consume((long) REMOVE_LAST.invokeExact(d));
+        }
+
+        @Override
+        void walk(Object d, Blackhole bh) throws Throwable {
+            PrimitiveIterator.OfLong it = (PrimitiveIterator.OfLong) ITERATOR.invokeExact(d);
+            while (it.hasNext()) {
+                bh.consume(it.nextLong());
+            }
+        }
+    }
+
+    public static class WorkStealing extends DequeBenchmark {
+        private static final Integer ITEM = 42; // boxed once, so only the deque allocates
+        private static final MethodHandle NEW = Handles.constructor("WorkStealingDeque");
+        private static final MethodHandle ADD_LAST = Handles.method("WorkStealingDeque", "addLast", void.class,
+                Object.class);
+        private static final MethodHandle REMOVE_FIRST = Handles.method("WorkStealingDeque", "removeFirst",
+                Object.class);
+        private static final MethodHandle REMOVE_LAST = Handles.method("WorkStealingDeque", "removeLast",
+                Object.class);
+
+        @Override
+        Object create() throws Throwable {
+            return (Object) NEW.invokeExact();
+        }
+
+        @Override
+        void addLast(Object d) throws Throwable {
+            ADD_LAST.invokeExact(d, (Object) ITEM);
+        }
+
+        @Override
+        void removeFirst(Object d, Blackhole bh) throws Throwable {
+            bh.consume((Object) REMOVE_FIRST.invokeExact(d));
+        }
+
+        @Override
+        void removeLast(Object d, Blackhole bh) throws Throwable {
+            bh.consume((Object) REMOVE_LAST.invokeExact(d));
+        }
+
+        @Override
+        void walk(Object d, Blackhole bh) {
+            for (Object o : (Iterable<?>) d) {
+                bh.consume(o);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder().parent(new CommandLineOptions(args))
+                .include(DequeBenchmark.class.getSimpleName()).addProfiler(GCProfiler.class).build()).run();
+    }
+}
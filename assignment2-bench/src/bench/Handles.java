@@ -0,0 +1,49 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Method handles onto the assignment classes.
+ * <p>
+ * JMH refuses benchmarks in the default package, and code in a named package
+ * cannot refer to default-package classes, so the benchmarks reach Deque,
+ * RandomizedQueue and friends through handles. Kept in static final fields
+ * the handles are constants to the JIT and the calls inline like direct ones.
+ */
+final class Handles {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private Handles() {
+    }
+
+    static Class<?> type(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(name + " is not on the classpath", e);
+        }
+    }
+
+    // handle for a public constructor of cls, typed to return Object
+    static MethodHandle constructor(String cls, Class<?>... params) {
+        try {
+            MethodHandle mh = LOOKUP.findConstructor(type(cls), MethodType.methodType(void.class, params));
+            return mh.asType(mh.type().changeReturnType(Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // handle for a public instance method of cls, with the receiver typed as
+    // Object
+    static MethodHandle method(String cls, String name, Class<?> ret, Class<?>... params) {
+        try {
+            MethodHandle mh = LOOKUP.findVirtual(type(cls), name, MethodType.methodType(ret, params));
+            return mh.asType(mh.type().changeParameterType(0, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+/******************************************************************************
+ *  Compilation:  Eclipse project assignment2-bench (annotation processing
+ *                must be on so JMH generates its harness)
+ *  Execution:    java bench.RandomizedQueueBenchmark [JMH options]
+ *  Dependencies: assignment2, algs4.jar, jmh-core, jmh-generator-annprocess
+ *
+ *  The four randomized queues: RandomizedQueue, WeightedRandomizedQueue
+ *  (all weights 1), ConcurrentRandomizedQueue (uncontended) and the
+ *  unboxed IntRandomizedQueue. Measures one enqueue and one dequeue on a
+ *  queue held at a steady size, sample(), growing an empty queue to that
+ *  size and draining it again, and iterating over all items or just the
+ *  first few. main() adds the GC profiler, so gc.alloc.rate.norm gives the
+ *  bytes allocated per call next to its time.
+ *
+ ******************************************************************************/
+
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Iterator;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// one subclass per implementation, so that each sees its own handles as
+// constants; each enqueues a constant item of its own type
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class RandomizedQueueBenchmark {
+    // items taken by iterateFew(), as when sampling k from a large queue
+    private static final int FEW = 10;
+
+    @Param({ "16", "65536" })
+    private int size;
+
+    private Object queue; // held at size items
+
+    abstract Object create() throws Throwable;
+
+    abstract void enqueue(Object q) throws Throwable;
+
+    abstract void dequeue(Object q, Blackhole bh) throws Throwable;
+
+    abstract void sample(Object q, Blackhole bh) throws Throwable;
+
+    // iterates over the first limit items
+    abstract void walk(Object q, int limit, Blackhole bh) throws Throwable;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Throwable {
+        queue = create();
+        for (int j = 0; j < size; j++) {
+            enqueue(queue);
+        }
+    }
+
+    @Benchmark
+    public void enqueueDequeue(Blackhole bh) throws Throwable {
+        enqueue(queue);
+        dequeue(queue, bh);
+    }
+
+    @Benchmark
+    public void sample(Blackhole bh) throws Throwable {
+        sample(queue, bh);
+    }
+
+    @Benchmark
+    public Object growShrink(Blackhole bh) throws Throwable { // every resize on
+                                                              // the way up and
+                                                              // down
+        Object q = create();
+        for (int j = 0; j < size; j++) {
+            enqueue(q);
+        }
+        for (int j = 0; j < size; j++) {
+            dequeue(q, bh);
+        }
+        return q;
+    }
+
+    @Benchmark
+    public void iterate(Blackhole bh) throws Throwable {
+        walk(queue, Integer.MAX_VALUE, bh);
+    }
+
+    @Benchmark
+    public void iterateFew(Blackhole bh) throws Throwable {
+        walk(queue, FEW, bh);
+    }
+
+    public static class Uniform extends RandomizedQueueBenchmark {
+        private static final Integer ITEM = 42; // boxed once, so only the queue allocates
+        private static final MethodHandle NEW = Handles.constructor("RandomizedQueue");
+        private static final MethodHandle ENQUEUE = Handles.method("RandomizedQueue", "enqueue", void.class,
+                Object.class);
+        private static final MethodHandle DEQUEUE = Handles.method("RandomizedQueue", "dequeue", Object.class);
+        private static final MethodHandle SAMPLE = Handles.method("RandomizedQueue", "sample", Object.class);
+
+        @Override
+        Object create() throws Throwable {
+            return (Object) NEW.invokeExact();
+        }
+
+        @Override
+        void enqueue(Object q) throws Throwable {
+            ENQUEUE.invokeExact(q, (Object) ITEM);
+        }
+
+        @Override
+        void dequeue(Object q, Blackhole bh) throws Throwable {
+            bh.consume((Object) DEQUEUE.invokeExact(q));
+        }
+
+        @Override
+        void sample(Object q, Blackhole bh) throws Throwable {
+            bh.consume((Object) SAMPLE.invokeExact(q));
+        }
+
+        @Override
+        void walk(Object q, int limit, Blackhole bh) {
+            Iterator<?> it = ((Iterable<?>) q).iterator();
+            for (int j = 0; j < limit && it.hasNext(); j++) {
+                bh.consume(it.next());
+            }
+        }
+    }
+
+    public static class Weighted extends RandomizedQueueBenchmark {
+        private static final Integer ITEM = 42; // boxed once, so only the queue allocates
+        private static final MethodHandle NEW = Handles.constructor("WeightedRandomizedQueue");
+        private static final MethodHandle ENQUEUE = Handles.method("WeightedRandomizedQueue", "enqueue", void.class,
+                Object.class);
+        private static final MethodHandle DEQUEUE = Handles.method("WeightedRandomizedQueue", "dequeue", Object.class);
+        private static final MethodHandle SAMPLE = Handles.method("WeightedRandomizedQueue", "sample", Object.class);
+
+        @Override
+        Object create() throws Throwable {
+            return (Object) NEW.invokeExact();
+        }
+
+        @Override
+        void enqueue(Object q) throws Throwable {
+            ENQUEUE.invokeExact(q, (Object) ITEM);
+        }
+
+        @Override
+        void dequeue(Object q, Blackhole bh) throws Throwable {
+            bh.consume((Object) DEQUEUE.invokeExact(q));
+        }
+
+        @Override
+        void sample(Object q, Blackhole bh) throws Throwable {
+            bh.consume((Object) SAMPLE.invokeExact(q));
+        }
+
+        @Override
+        void walk(Object q, int limit, Blackhole bh) {
+            Iterator<?> it = ((Iterable<?>) q).iterator();
+            for (int j = 0; j < limit && it.hasNext(); j++) {
+                bh.consume(it.next());
+            }
+        }
+    }
+
+    public static class Concurrent extends RandomizedQueueBenchmark {
+        private static final Integer ITEM = 42; // boxed once, so only the queue allocates
+        private static final MethodHandle NEW = Handles.constructor("ConcurrentRandomizedQueue");
+        private static final MethodHandle ENQUEUE = Handles.method("ConcurrentRandomizedQueue", "enqueue", void.class,
+                Object.class);
+        private static final MethodHandle DEQUEUE = Handles.method("ConcurrentRandomizedQueue", "dequeue",
+                Object.class);
+        private static final MethodHandle SAMPLE = Handles.method("ConcurrentRandomizedQueue", "sample", Object.class);
+
+        @Override
+        Object create() throws Throwable {
+            return (Object) NEW.invokeExact();
+        }
+
+        @Override
+        void enqueue(Object q) throws Throwable {
+            ENQUEUE.invokeExact(q, (Object) ITEM);
+        }
+
+        @Override
+        void dequeue(Object q, Blackhole bh) throws Throwable {
+            bh.consume((Object) DEQUEUE.invokeExact(q));
+        }
+
+        @Override
+        void sample(Object q, Blackhole bh) throws Throwable {
+            bh.consume((Object) SAMPLE.invokeExact(q));
+        }
+
+        @Override
+        void walk(Object q, int limit, Blackhole bh) {
+            Iterator<?> it = ((Iterable<?>) q).iterator();
+            for (int j = 0; j < limit && it.hasNext(); j++) {
+                bh.consume(it.next());
+            }
+        }
+    }
+
+    public static class Int extends RandomizedQueueBenchmark {
+        private static final int ITEM = 42;
+        private static final MethodHandle NEW = Handles.constructor("IntRandomizedQueue");
+        private static final MethodHandle ENQUEUE = Handles.method("IntRandomizedQueue", "enqueue", void.class,
+                int.class);
+        private static final MethodHandle DEQUEUE = Handles.method("IntRandomizedQueue", "dequeue", int.class);
+        private static final MethodHandle SAMPLE = Handles.method("IntRandomizedQueue", "sample", int.class);
+        private static final MethodHandle ITERATOR = Handles.method("IntRandomizedQueue", "iterator",
+                PrimitiveIterator.OfInt.class);
+
+        @Override
+        Object create() throws Throwable {
+            return (Object) NEW.invokeExact();
+        }
+
+        @Override
+        void enqueue(Object q) throws Throwable {
+            ENQUEUE.invokeExact(q, ITEM);
+        }
+
+        @Override
+        void dequeue(Object q, Blackhole bh) throws Throwable {
+            bh.consume((int) DEQUEUE.invokeExact(q));
+        }
+
+        @Override
+        void sample(Object q, Blackhole bh) throws Throwable {
+            bh.consume((int) SAMPLE.invokeExact(q));
+        }
+
+        @Override
+        void walk(Object q, int limit, Blackhole bh) throws Throwable {
+            PrimitiveIterator.OfInt it = (PrimitiveIterator.OfInt) ITERATOR.invokeExact(q);
+            for (int j = 0; j < limit && it.hasNext(); j++) {
+                bh.consume(it.nextInt());
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder().parent(new CommandLineOptions(args))
+                .include(RandomizedQueueBenchmark.class.getSimpleName()).addProfiler(GCProfiler.class).build())
+                        .run();
+    }
+}
@@ -0,0 +1,243 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A thread-safe randomized queue, split into independently locked shards so
+ * that threads enqueueing and dequeueing at the same time rarely contend.
+ * <p>
+ * enqueue() adds to a shard chosen uniformly at random. dequeue() and
+ * sample() choose a shard with probability proportional to its size, then an
+ * item uniformly within it. While no other thread changes the queue during
+ * the call, every item is therefore chosen with probability exactly 1 / n;
+ * under concurrent changes the shard sizes read may be slightly stale, which
+ * skews the choice between shards by at most the changes made meanwhile.
+ * Each item is still dequeued exactly once.
+ */
+public class ConcurrentRandomizedQueue<Item> implements Iterable<Item> {
+    private final Shard<Item>[] shards;
+
+    // a dense array of items, like RandomizedQueue, behind its own lock
+    private static class Shard<Item> {
+        private Item[] items;
+        private volatile int size;
+
+        @SuppressWarnings("unchecked")
+        Shard() {
+            items = (Item[]) new Object[1];
+        }
+
+        synchronized void add(Item item) {
+            if (size == items.length)
+                items = Arrays.copyOf(items, 2 * items.length);
+            items[size] = item;
+            size = size + 1;
+        }
+
+        synchronized Item remove(ThreadLocalRandom random) { // null if empty
+            if (size == 0)
+                return null;
+
+            int idx = random.nextInt(size);
+            int last = size - 1;
+            Item item = items[idx];
+            items[idx] = items[last];
+            items[last] = null;
+            size = last;
+
+            if (last > 0 && last <= items.length / 4)
+                items = Arrays.copyOf(items, items.length / 2);
+            return item;
+        }
+
+        synchronized Item sample(ThreadLocalRandom random) { // null if empty
+            return size == 0 ? null : items[random.nextInt(size)];
+        }
+
+        synchronized int copyTo(Object[] to, int at) { // returns the new end
+            int count = Math.min(size, to.length - at);
+            System.arraycopy(items, 0, to, at, count);
+            return at + count;
+        }
+    }
+
+    public ConcurrentRandomizedQueue() { // two shards per processor
+        this(2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    @SuppressWarnings("unchecked")
+    public ConcurrentRandomizedQueue(int shards) {
+        if (shards <= 0)
+            throw new IllegalArgumentException();
+        this.shards = (Shard<Item>[]) new Shard<?>[shards];
+        for (int j = 0; j < shards; j++) {
+            this.shards[j] = new Shard<>();
+        }
+    }
+
+    public boolean isEmpty() { // is the queue empty at this moment?
+        return size() == 0;
+    }
+
+    public int size() { // number of items, exact when no other thread
+                        // changes the queue meanwhile
+        int total = 0;
+        for (Shard<Item> shard : shards) {
+            total += shard.size;
+        }
+        return total;
+    }
+
+    public void enqueue(Item item) { // add the item
+        if (item == null)
+            throw new NullPointerException();
+        shards[ThreadLocalRandom.current().nextInt(shards.length)].add(item);
+    }
+
+    public Item dequeue() { // remove and return a random item
+        Item item = poll();
+        if (item == null)
+            throw new NoSuchElementException();
+        return item;
+    }
+
+    public Item poll() { // remove and return a random item, null if empty
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (true) {
+            Shard<Item> shard = pick(random);
+            if (shard == null)
+                return null;
+            Item item = shard.remove(random);
+            if (item != null)
+                return item;
+            // another thread emptied the shard after it was picked
+        }
+    }
+
+    public Item sample() { // return (but do not remove) a random item
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (true) {
+            Shard<Item> shard = pick(random);
+            if (shard == null)
+                throw new NoSuchElementException();
+            Item item = shard.sample(random);
+            if (item != null)
+                return item;
+        }
+    }
+
+    // a shard chosen with probability proportional to its size, or null if
+    // all shards are empty
+    private Shard<Item> pick(ThreadLocalRandom random) {
+        int total = size();
+        if (total == 0)
+            return null;
+
+        int r = random.nextInt(total);
+        for (Shard<Item> shard : shards) {
+            r -= shard.size;
+            if (r < 0)
+                return shard;
+        }
+        // sizes changed between the two reads; any non-empty shard will do
+        for (Shard<Item> shard : shards) {
+            if (shard.size > 0)
+                return shard;
+        }
+        return null;
+    }
+
+    public Iterator<Item> iterator() { // an iterator over a snapshot of the
+                                       // items in random order; each shard is
+                                       // copied atomically, the queue as a
+                                       // whole is not
+        Object[] snapshot = new Object[size()];
+        int end = 0;
+        for (Shard<Item> shard : shards) {
+            end = shard.copyTo(snapshot, end);
+        }
+        final Object[] items = snapshot;
+        final int count = end;
+
+        return new Iterator<Item>() {
+            private int left = count;
+
+            @Override
+            public boolean hasNext() {
+                return left > 0;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public Item next() {
+                if (left <= 0)
+                    throw new NoSuchElementException();
+
+                // one Fisher-Yates step per item returned
+                int idx = ThreadLocalRandom.current().nextInt(left--);
+                Object item = items[idx];
+                items[idx] = items[left];
+                return (Item) item;
+            }
+        };
+    }
+
+    // unit testing
+    public static void main(String[] args) throws InterruptedException {
+        final ConcurrentRandomizedQueue<Integer> rq = new ConcurrentRandomizedQueue<>(8);
+        final int threads = 4;
+        final int perThread = 100000;
+        final boolean[] seen = new boolean[threads * perThread];
+        final int[] duplicates = new int[1];
+
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int id = t;
+            workers[t] = new Thread(() -> {
+                for (int j = 0; j < perThread; j++) {
+                    rq.enqueue(id * perThread + j);
+                    if (j % 2 == 1) {
+                        Integer item = rq.poll();
+                        if (item != null) {
+                            synchronized (seen) {
+                                if (seen[item])
+                                    duplicates[0]++;
+                                seen[item] = true;
+                            }
+                        }
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        int iterated = 0;
+        for (int item : rq) {
+            assert !seen[item];
+            iterated++;
+        }
+        assert iterated == rq.size();
+
+        while (!rq.isEmpty()) {
+            int item = rq.dequeue();
+            assert !seen[item];
+            seen[item] = true;
+        }
+        assert duplicates[0] == 0;
+        for (boolean s : seen) {
+            assert s;
+        }
+        System.out.println("dequeued " + seen.length + " items exactly once");
+
+        try {
+            rq.dequeue();
+            assert false;
+        } catch (NoSuchElementException nse) {
+            // good
+        }
+    }
+}
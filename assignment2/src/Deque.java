@@ -1,5 +1,10 @@
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class Deque<Item> implements Iterable<Item> {
     private Node head;
@@ -65,8 +70,11 @@ public class Deque<Item> implements Iterable<Item> {
         if (isEmpty())
             throw new NoSuchElementException();
 
-        Item first = head.item;
-        head = head.next;
+        Node old = head;
+        Item first = old.item;
+        head = old.next;
+        old.item = null; // avoid loitering
+        old.next = null;
         size--;
 
         if (size == 0) {
@@ -82,8 +90,11 @@ public class Deque<Item> implements Iterable<Item> {
         if (isEmpty())
             throw new NoSuchElementException();
 
-        Item last = tail.item;
-        tail = tail.prev;
+        Node old = tail;
+        Item last = old.item;
+        tail = old.prev;
+        old.item = null; // avoid loitering
+        old.prev = null;
         size--;
 
         if (size == 0) {
@@ -95,6 +106,49 @@ public class Deque<Item> implements Iterable<Item> {
         return last;
     }
 
+    public void addAll(Iterable<? extends Item> items) { // add the items, in
+                                                         // order, to the end
+        for (Item item : items) {
+            addLast(item);
+        }
+    }
+
+    // removes up to max items from the front into to, in order; returns the
+    // number of items moved
+    public int drainTo(Collection<? super Item> to, int max) {
+        if (max < 0)
+            throw new IllegalArgumentException();
+
+        // each item is unlinked only once to has taken it, so the deque stays
+        // consistent if to.add() throws
+        int moved = 0;
+        while (moved < max && head != null) {
+            Node old = head;
+            to.add(old.item);
+            head = old.next;
+            old.item = null;
+            old.next = null;
+            if (head == null)
+                tail = null;
+            else
+                head.prev = null;
+            size--;
+            moved++;
+        }
+        return moved;
+    }
+
+    @Override
+    public Spliterator<Item> spliterator() { // splits off batches of nodes
+                                             // copied to arrays
+        return Spliterators.spliterator(iterator(), size, Spliterator.ORDERED | Spliterator.NONNULL);
+    }
+
+    public Stream<Item> stream() { // a sequential stream over the items in
+                                   // order from front to end
+        return StreamSupport.stream(spliterator(), false);
+    }
+
     public Iterator<Item> iterator() { // return an iterator over items in order
                                        // from front to end
         return new Iterator<Item>() {
@@ -168,5 +222,62 @@ public class Deque<Item> implements Iterable<Item> {
 
         System.out
                 .println("4..1 " + d.removeLast() + " " + d.removeLast() + " " + d.removeLast() + " " + d.removeLast());
+
+        java.util.List<Integer> batch = new java.util.ArrayList<>();
+        for (int j = 0; j < 100000; j++) {
+            batch.add(j);
+        }
+        d.addAll(batch);
+        assert d.size() == batch.size();
+        assert d.stream().parallel().mapToLong(i -> i).sum() == 100000L * 99999 / 2;
+
+        batch.clear();
+        assert d.drainTo(batch, 10) == 10;
+        assert batch.get(0) == 0 && batch.get(9) == 9;
+        assert d.removeFirst() == 10;
+        assert d.drainTo(batch, Integer.MAX_VALUE) == 100000 - 11;
+        assert d.isEmpty();
+        d.addLast(1);
+        assert d.removeLast() == 1;
+
+        // a collection that refuses its fourth item leaves the rest in place
+        for (int j = 0; j < 6; j++) {
+            d.addLast(j);
+        }
+        final java.util.List<Integer> three = new java.util.ArrayList<>();
+        try {
+            d.drainTo(new java.util.AbstractCollection<Integer>() {
+                @Override
+                public boolean add(Integer item) {
+                    if (three.size() == 3)
+                        throw new IllegalStateException();
+                    return three.add(item);
+                }
+
+                @Override
+                public Iterator<Integer> iterator() {
+                    return three.iterator();
+                }
+
+                @Override
+                public int size() {
+                    return three.size();
+                }
+            }, 6);
+            assert false;
+        } catch (IllegalStateException e) {
+            // good
+        }
+        assert three.equals(java.util.Arrays.asList(0, 1, 2));
+        assert d.size() == 3;
+        int expected = 3;
+        for (int i : d) {
+            assert i == expected++;
+        }
+        assert expected == 6;
+        assert d.removeLast() == 5;
+        assert d.removeFirst() == 3;
+        assert d.removeLast() == 4;
+        assert d.isEmpty();
     }
 }
\ No newline at end of file
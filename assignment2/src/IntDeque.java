@@ -0,0 +1,124 @@
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Deque of int values with the same operations as Deque, kept unboxed in a
+ * circular int[] whose capacity is a power of two, so positions wrap with a
+ * mask. The array doubles when full and halves when a quarter full.
+ */
+public class IntDeque implements Iterable<Integer> {
+    private int[] items = new int[2];
+    private int head; // index of the first item
+    private int size;
+
+    public boolean isEmpty() { // is the deque empty?
+        return size == 0;
+    }
+
+    public int size() { // return the number of items on the deque
+        return size;
+    }
+
+    public void addFirst(int item) { // add the item to the front
+        if (size == items.length)
+            resize(2 * items.length);
+        head = (head - 1) & (items.length - 1);
+        items[head] = item;
+        size++;
+    }
+
+    public void addLast(int item) { // add the item to the end
+        if (size == items.length)
+            resize(2 * items.length);
+        items[(head + size) & (items.length - 1)] = item;
+        size++;
+    }
+
+    public int removeFirst() { // remove and return the item from the front
+        if (isEmpty())
+            throw new NoSuchElementException();
+
+        int first = items[head];
+        head = (head + 1) & (items.length - 1);
+        size--;
+        shrink();
+        return first;
+    }
+
+    public int removeLast() { // remove and return the item from the end
+        if (isEmpty())
+            throw new NoSuchElementException();
+
+        size--;
+        int last = items[(head + size) & (items.length - 1)];
+        shrink();
+        return last;
+    }
+
+    private void shrink() {
+        if (items.length > 2 && size <= items.length / 4)
+            resize(items.length / 2);
+    }
+
+    // copies the items, in order, to the start of a new array
+    private void resize(int capacity) {
+        int[] newItems = new int[capacity];
+        int firstPart = Math.min(size, items.length - head);
+        System.arraycopy(items, head, newItems, 0, firstPart);
+        System.arraycopy(items, 0, newItems, firstPart, size - firstPart);
+        items = newItems;
+        head = 0;
+    }
+
+    public PrimitiveIterator.OfInt iterator() { // return an iterator over items
+                                                // in order from front to end
+        return new PrimitiveIterator.OfInt() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public int nextInt() {
+                if (next >= size)
+                    throw new NoSuchElementException();
+                return items[(head + next++) & (items.length - 1)];
+            }
+        };
+    }
+
+    public static void main(String[] args) { // unit testing
+        IntDeque d = new IntDeque();
+
+        assert d.isEmpty();
+        try {
+            d.removeLast();
+            assert false;
+        } catch (NoSuchElementException nse) {
+            // good
+        }
+
+        for (int j = 0; j < 100; j++) {
+            d.addFirst(-j);
+            d.addLast(j);
+        }
+        assert d.size() == 200;
+
+        PrimitiveIterator.OfInt it = d.iterator();
+        for (int j = 99; j >= 0; j--) {
+            assert it.nextInt() == -j;
+        }
+        for (int j = 0; j < 100; j++) {
+            assert it.nextInt() == j;
+        }
+        assert !it.hasNext();
+
+        for (int j = 99; j >= 0; j--) {
+            assert d.removeFirst() == -j;
+            assert d.removeLast() == j;
+        }
+        assert d.isEmpty();
+    }
+}
@@ -0,0 +1,111 @@
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+import edu.princeton.cs.algs4.StdRandom;
+
+/**
+ * Randomized queue of int values with the same operations as
+ * RandomizedQueue, kept unboxed and densely packed in an int[].
+ */
+public class IntRandomizedQueue implements Iterable<Integer> {
+    private int[] queue = new int[1];
+    private int size;
+
+    public boolean isEmpty() { // is the queue empty?
+        return size == 0;
+    }
+
+    public int size() { // return the number of items on the queue
+        return size;
+    }
+
+    public void enqueue(int item) { // add the item
+        if (size == queue.length)
+            resize(2 * queue.length);
+
+        queue[size++] = item;
+    }
+
+    public int dequeue() { // remove and return a random item
+        if (size == 0)
+            throw new NoSuchElementException();
+
+        int idx = StdRandom.uniform(size);
+        int item = queue[idx];
+        queue[idx] = queue[--size];
+
+        if (size > 0 && size <= queue.length / 4)
+            resize(queue.length / 2);
+
+        return item;
+    }
+
+    private void resize(int capacity) {
+        int[] newQ = new int[capacity];
+        System.arraycopy(queue, 0, newQ, 0, size);
+        queue = newQ;
+    }
+
+    public int sample() { // return (but do not remove) a random item
+        if (size == 0)
+            throw new NoSuchElementException();
+
+        return queue[StdRandom.uniform(size)];
+    }
+
+    public PrimitiveIterator.OfInt iterator() { // return an independent
+                                                // iterator over items in
+                                                // random order
+        final int[] items = new int[size];
+        System.arraycopy(queue, 0, items, 0, size);
+        StdRandom.shuffle(items);
+
+        return new PrimitiveIterator.OfInt() {
+            private int left = items.length;
+
+            @Override
+            public boolean hasNext() {
+                return left > 0;
+            }
+
+            @Override
+            public int nextInt() {
+                if (left <= 0)
+                    throw new NoSuchElementException();
+                return items[--left];
+            }
+        };
+    }
+
+    public static void main(String[] args) { // unit testing
+        IntRandomizedQueue rq = new IntRandomizedQueue();
+
+        for (int j = 0; j < 100; j++) {
+            rq.enqueue(j);
+        }
+
+        int sum = 0;
+        PrimitiveIterator.OfInt it = rq.iterator();
+        while (it.hasNext()) {
+            sum += it.nextInt();
+        }
+        assert sum == 4950;
+
+        boolean[] seen = new boolean[100];
+        while (!rq.isEmpty()) {
+            int item = rq.dequeue();
+            assert !seen[item];
+            seen[item] = true;
+        }
+        for (boolean s : seen) {
+            assert s;
+        }
+
+        try {
+            rq.sample();
+            assert false;
+        } catch (NoSuchElementException nse) {
+            // good
+        }
+    }
+}
@@ -0,0 +1,124 @@
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Deque of long values with the same operations as Deque, kept unboxed in a
+ * circular long[] whose capacity is a power of two, so positions wrap with a
+ * mask. The array doubles when full and halves when a quarter full.
+ */
+public class LongDeque implements Iterable<Long> {
+    private long[] items = new long[2];
+    private int head; // index of the first item
+    private int size;
+
+    public boolean isEmpty() { // is the deque empty?
+        return size == 0;
+    }
+
+    public int size() { // return the number of items on the deque
+        return size;
+    }
+
+    public void addFirst(long item) { // add the item to the front
+        if (size == items.length)
+            resize(2 * items.length);
+        head = (head - 1) & (items.length - 1);
+        items[head] = item;
+        size++;
+    }
+
+    public void addLast(long item) { // add the item to the end
+        if (size == items.length)
+            resize(2 * items.length);
+        items[(head + size) & (items.length - 1)] = item;
+        size++;
+    }
+
+    public long removeFirst() { // remove and return the item from the front
+        if (isEmpty())
+            throw new NoSuchElementException();
+
+        long first = items[head];
+        head = (head + 1) & (items.length - 1);
+        size--;
+        shrink();
+        return first;
+    }
+
+    public long removeLast() { // remove and return the item from the end
+        if (isEmpty())
+            throw new NoSuchElementException();
+
+        size--;
+        long last = items[(head + size) & (items.length - 1)];
+        shrink();
+        return last;
+    }
+
+    private void shrink() {
+        if (items.length > 2 && size <= items.length / 4)
+            resize(items.length / 2);
+    }
+
+    // copies the items, in order, to the start of a new array
+    private void resize(int capacity) {
+        long[] newItems = new long[capacity];
+        int firstPart = Math.min(size, items.length - head);
+        System.arraycopy(items, head, newItems, 0, firstPart);
+        System.arraycopy(items, 0, newItems, firstPart, size - firstPart);
+        items = newItems;
+        head = 0;
+    }
+
+    public PrimitiveIterator.OfLong iterator() { // return an iterator over items
+                                                // in order from front to end
+        return new PrimitiveIterator.OfLong() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public long nextLong() {
+                if (next >= size)
+                    throw new NoSuchElementException();
+                return items[(head + next++) & (items.length - 1)];
+            }
+        };
+    }
+
+    public static void main(String[] args) { // unit testing
+        LongDeque d = new LongDeque();
+
+        assert d.isEmpty();
+        try {
+            d.removeLast();
+            assert false;
+        } catch (NoSuchElementException nse) {
+            // good
+        }
+
+        for (int j = 0; j < 100; j++) {
+            d.addFirst(-j);
+            d.addLast(j);
+        }
+        assert d.size() == 200;
+
+        PrimitiveIterator.OfLong it = d.iterator();
+        for (int j = 99; j >= 0; j--) {
+            assert it.nextLong() == -j;
+        }
+        for (int j = 0; j < 100; j++) {
+            assert it.nextLong() == j;
+        }
+        assert !it.hasNext();
+
+        for (int j = 99; j >= 0; j--) {
+            assert d.removeFirst() == -j;
+            assert d.removeLast() == j;
+        }
+        assert d.isEmpty();
+    }
+}
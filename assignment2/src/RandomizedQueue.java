@@ -1,17 +1,25 @@
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import edu.princeton.cs.algs4.StdRandom;
 
 public class RandomizedQueue<Item> implements Iterable<Item> {
+    // items are kept in queue[0..size), so a random index always hits an
+    // item and removal swaps the last item into the hole
     private Item[] queue;
-    private int[] empty;
-    private int emptyIdx;
     private int size;
 
     @SuppressWarnings("unchecked")
     public RandomizedQueue() { // construct an empty randomized queue
-        queue = (Item[]) new Object[0];
+        queue = (Item[]) new Object[1];
     }
 
     public boolean isEmpty() { // is the queue empty?
@@ -22,97 +30,91 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
         return size;
     }
 
-    @SuppressWarnings("unchecked")
     public void enqueue(Item item) { // add the item
         if (item == null)
             throw new NullPointerException();
 
-        if (queue.length < size + 1) {
-            Item[] oldQueue = queue;
-            queue = (Item[]) new Object[Math.max(size * 2, 1)];
-            for (int j = 0; j < size; j++) {
-                queue[j] = oldQueue[j];
-            }
+        if (size == queue.length)
+            resize(2 * queue.length);
 
-            empty = new int[queue.length];
-            emptyIdx = 0;
-            for (int j = size; j < empty.length; j++) {
-                empty[emptyIdx++] = j;
-            }
+        queue[size++] = item;
+    }
+
+    public void addAll(Iterable<? extends Item> items) { // add the items
+        if (items instanceof Collection) {
+            int needed = size + ((Collection<?>) items).size();
+            if (needed > queue.length)
+                resize(Math.max(needed, 2 * queue.length));
+        }
+        for (Item item : items) {
+            enqueue(item);
+        }
+    }
+
+    // removes up to max random items into to, in random order; returns the
+    // number of items moved
+    public int drainTo(Collection<? super Item> to, int max) {
+        if (max < 0)
+            throw new IllegalArgumentException();
+
+        int moved = Math.min(max, size);
+        for (int j = 0; j < moved; j++) {
+            int idx = StdRandom.uniform(size);
+            to.add(queue[idx]);
+            queue[idx] = queue[--size];
+            queue[size] = null;
         }
 
-        queue[empty[--emptyIdx]] = item;
-        size++;
+        // shrink once for the whole batch, even when it emptied the queue
+        if (size <= queue.length / 4)
+            resize(Math.max(1, 2 * size));
+        return moved;
     }
 
     public Item dequeue() { // remove and return a random item
         if (size == 0)
             throw new NoSuchElementException();
 
-        while (true) {
-            int idx = StdRandom.uniform(0, queue.length);
+        int idx = StdRandom.uniform(size);
+        Item item = queue[idx];
+        queue[idx] = queue[--size];
+        queue[size] = null;
 
-            if (queue[idx] != null) {
-                Item item = queue[idx];
-                queue[idx] = null;
-                empty[emptyIdx++] = idx;
-                size--;
+        if (size > 0 && size <= queue.length / 4)
+            resize(queue.length / 2);
 
-                if (size <= queue.length / 4)
-                    shrinkQueue();
-
-                return item;
-            }
-        }
+        return item;
     }
 
-    private void shrinkQueue() {
-        assert size <= queue.length / 4;
+    // copies the size live items, and nothing else, into a new array
+    private void resize(int capacity) {
+        assert capacity >= size;
 
         @SuppressWarnings("unchecked")
-        Item[] newQ = (Item[]) new Object[queue.length / 4];
-        int nidx = 0;
-
-        for (int j = 0; j < queue.length; j++) {
-            if (queue[j] != null)
-                newQ[nidx++] = queue[j];
-        }
+        Item[] newQ = (Item[]) new Object[capacity];
+        System.arraycopy(queue, 0, newQ, 0, size);
         queue = newQ;
-        
-        empty = new int[queue.length];
-        emptyIdx = 0;
-        for (int j = size; j < empty.length; j++) {
-            empty[emptyIdx++] = j;
-        }
     }
 
     public Item sample() { // return (but do not remove) a random item
         if (size == 0)
             throw new NoSuchElementException();
 
-        while (true) {
-            int idx = StdRandom.uniform(0, queue.length);
-            if (queue[idx] != null)
-                return queue[idx];
-        }
+        return queue[StdRandom.uniform(size)];
     }
 
     public Iterator<Item> iterator() { // return an independent iterator over
                                        // items in random order
         return new Iterator<Item>() {
+            // a Fisher-Yates shuffle of the indices [0, size), one swap per
+            // item returned: slot j of the permutation holds displaced.get(j),
+            // or j itself if it has not been swapped yet. The map only grows
+            // with the items taken, so taking a few items from a large queue
+            // costs O(1) to start and O(k) memory; once a sixteenth of the
+            // items have been taken, the rest moves to a dense order[].
             private int left = size;
-            private int[] order = new int[size];
-
-            private Iterator<Item> initializeOrder() {
-                int oi = 0;
-                for (int j = 0; j < queue.length; j++) {
-                    if (queue[j] != null) {
-                        order[oi++] = j;
-                    }
-                }
-                StdRandom.shuffle(order);
-                return this;
-            }
+            private HashMap<Integer, Integer> displaced = new HashMap<>();
+            private int[] order;
 
             @Override
             public boolean hasNext() {
@@ -123,11 +125,51 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
             public Item next() {
                 if (left <= 0)
                     throw new NoSuchElementException();
-                return queue[order[--left]];
+
+                int r = StdRandom.uniform(left--);
+                int idx;
+                if (order != null) {
+                    idx = order[r];
+                    order[r] = order[left];
+                } else {
+                    idx = slot(r);
+                    displaced.put(r, slot(left));
+                    displaced.remove(left);
+                    if (displaced.size() > size / 16)
+                        densify();
+                }
+                return queue[idx];
+            }
+
+            private int slot(int j) {
+                Integer idx = displaced.get(j);
+                return idx == null ? j : idx;
+            }
+
+            private void densify() {
+                order = new int[left];
+                for (int j = 0; j < left; j++) {
+                    order[j] = j;
+                }
+                for (Map.Entry<Integer, Integer> e : displaced.entrySet()) {
+                    order[e.getKey()] = e.getValue();
+                }
+                displaced = null;
             }
+        };
+    }
 
-        }.initializeOrder();
+    @Override
+    public Spliterator<Item> spliterator() { // splits evenly over a shuffled
+                                             // snapshot of the items
+        Object[] snapshot = Arrays.copyOf(queue, size, Object[].class);
+        StdRandom.shuffle(snapshot);
+        return Spliterators.spliterator(snapshot, Spliterator.NONNULL);
+    }
 
+    public Stream<Item> stream() { // a sequential stream over the items in
+                                   // random order
+        return StreamSupport.stream(spliterator(), false);
     }
 
     public static void main(String[] args) { // unit testing
@@ -165,5 +207,51 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
                 System.out.println("Iterating 2: " + k);
             }
         }
+
+        // a full iteration returns every item once, through both the sparse
+        // and the dense stage
+        for (int j = 10; j < 1000; j++) {
+            rq.enqueue(j);
+        }
+        boolean[] seen = new boolean[1000];
+        for (int j : rq) {
+            assert !seen[j];
+            seen[j] = true;
+        }
+        for (boolean s : seen) {
+            assert s;
+        }
+        // taking a few items from a large queue leaves the rest untouched
+        for (int j = 1000; j < 1000000; j++) {
+            rq.enqueue(j);
+        }
+        Iterator<Integer> few = rq.iterator();
+        for (int j = 0; j < 10; j++) {
+            assert few.next() < 1000000;
+        }
+        rq.drainTo(new java.util.ArrayList<>(), rq.size());
+        for (int j = 0; j < 10; j++) {
+            rq.enqueue(j);
+        }
+
+        java.util.List<Integer> batch = new java.util.ArrayList<>();
+        for (int j = 0; j < 100000; j++) {
+            batch.add(10 + j);
+        }
+        rq.addAll(batch);
+        assert rq.size() == 100010;
+        assert rq.stream().parallel().mapToLong(i -> i).sum() == 45 + 100000L * (10 + 100009) / 2;
+
+        batch.clear();
+        assert rq.drainTo(batch, 100000) == 100000;
+        assert rq.size() == 10;
+        assert rq.drainTo(batch, 100) == 10;
+        assert rq.isEmpty();
+        assert ((RandomizedQueue<?>) rq).queue.length == 1; // nothing left holding
+                                                            // the drained array
+        java.util.Collections.sort(batch);
+        for (int j = 0; j < batch.size(); j++) {
+            assert batch.get(j) == j;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,168 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import edu.princeton.cs.algs4.StdRandom;
+
+/**
+ * Fixed-capacity random sample of an unbounded stream of items, in O(k)
+ * memory for a sample of k items.
+ * <p>
+ * Uses weighted reservoir sampling (Efraimidis and Spirakis, algorithm
+ * A-Res): each offered item gets the key u^(1 / w) for a uniform u and its
+ * weight w, and the sample is the k items with the largest keys, kept in a
+ * min-heap on the key. With all weights equal this is a uniform sample of
+ * the stream, like Algorithm R. Keys are compared as log(u) / w to stay
+ * clear of underflow for small weights.
+ */
+public class ReservoirSampler<Item> implements Iterable<Item> {
+    private final Item[] items;
+    private final double[] keys; // heap ordered, smallest key at 0
+    private int size;
+    private long offered;
+
+    @SuppressWarnings("unchecked")
+    public ReservoirSampler(int capacity) { // keep at most capacity items
+        if (capacity <= 0)
+            throw new IllegalArgumentException();
+        items = (Item[]) new Object[capacity];
+        keys = new double[capacity];
+    }
+
+    public int capacity() {
+        return items.length;
+    }
+
+    public int size() { // number of items in the sample
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long offered() { // number of items offered so far
+        return offered;
+    }
+
+    public boolean offer(Item item) { // offer the item with weight 1
+        return offer(item, 1.0);
+    }
+
+    // offers the item with weight w > 0; returns whether it entered the
+    // sample
+    public boolean offer(Item item, double w) {
+        if (item == null)
+            throw new NullPointerException();
+        if (!(w > 0) || Double.isInfinite(w))
+            throw new IllegalArgumentException();
+
+        offered++;
+        // 1 - uniform() is in (0, 1], so the log is finite
+        double key = Math.log(1 - StdRandom.uniform()) / w;
+        if (size < items.length) {
+            items[size] = item;
+            keys[size] = key;
+            swim(size++);
+            return true;
+        }
+        if (key <= keys[0])
+            return false;
+
+        // replace the item with the smallest key
+        items[0] = item;
+        keys[0] = key;
+        sink(0);
+        return true;
+    }
+
+    public void clear() { // empty the sample and restart the stream
+        Arrays.fill(items, null);
+        size = 0;
+        offered = 0;
+    }
+
+    private void swim(int k) {
+        while (k > 0) {
+            int parent = (k - 1) / 2;
+            if (keys[parent] <= keys[k])
+                break;
+            swap(parent, k);
+            k = parent;
+        }
+    }
+
+    private void sink(int k) {
+        while (2 * k + 1 < size) {
+            int child = 2 * k + 1;
+            if (child + 1 < size && keys[child + 1] < keys[child])
+                child++;
+            if (keys[k] <= keys[child])
+                break;
+            swap(k, child);
+            k = child;
+        }
+    }
+
+    private void swap(int i, int j) {
+        Item item = items[i];
+        items[i] = items[j];
+        items[j] = item;
+        double key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+    }
+
+    public Iterator<Item> iterator() { // the sampled items, in no particular
+                                       // order
+        return new Iterator<Item>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Item next() {
+                if (next >= size)
+                    throw new NoSuchElementException();
+                return items[next++];
+            }
+        };
+    }
+
+    public static void main(String[] args) { // unit testing
+        // uniform: each of 100 items ends up in a 10-item sample ~10% of the
+        // time
+        int[] hits = new int[100];
+        ReservoirSampler<Integer> uniform = new ReservoirSampler<>(10);
+        for (int round = 0; round < 20000; round++) {
+            uniform.clear();
+            for (int j = 0; j < 100; j++) {
+                uniform.offer(j);
+            }
+            assert uniform.size() == 10;
+            assert uniform.offered() == 100;
+            for (int j : uniform) {
+                hits[j]++;
+            }
+        }
+        for (int h : hits) {
+            assert Math.abs(h - 2000) < 300 : h;
+        }
+
+        // weighted: a single slot goes to "heavy" 9 times out of 10
+        ReservoirSampler<String> weighted = new ReservoirSampler<>(1);
+        int heavy = 0;
+        for (int round = 0; round < 20000; round++) {
+            weighted.clear();
+            weighted.offer("light", 1);
+            weighted.offer("heavy", 9);
+            if (weighted.iterator().next().equals("heavy"))
+                heavy++;
+        }
+        assert Math.abs(heavy - 18000) < 400 : heavy;
+        System.out.println("heavy kept " + heavy + " times out of 20000");
+    }
+}
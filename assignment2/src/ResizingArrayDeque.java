@@ -0,0 +1,160 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Deque with the same operations as Deque, kept in a circular array instead
+ * of a linked list: no node per item, and iteration walks memory in order.
+ * The capacity is a power of two, so positions wrap with a mask; the array
+ * doubles when full and halves when a quarter full.
+ */
+public class ResizingArrayDeque<Item> implements Iterable<Item> {
+    private Item[] items;
+    private int head; // index of the first item
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public ResizingArrayDeque() { // construct an empty deque
+        items = (Item[]) new Object[2];
+    }
+
+    public boolean isEmpty() { // is the deque empty?
+        return size == 0;
+    }
+
+    public int size() { // return the number of items on the deque
+        return size;
+    }
+
+    public void addFirst(Item item) { // add the item to the front
+        if (item == null)
+            throw new NullPointerException();
+
+        if (size == items.length)
+            resize(2 * items.length);
+        head = (head - 1) & (items.length - 1);
+        items[head] = item;
+        size++;
+    }
+
+    public void addLast(Item item) { // add the item to the end
+        if (item == null)
+            throw new NullPointerException();
+
+        if (size == items.length)
+            resize(2 * items.length);
+        items[(head + size) & (items.length - 1)] = item;
+        size++;
+    }
+
+    public Item removeFirst() { // remove and return the item from the front
+        if (isEmpty())
+            throw new NoSuchElementException();
+
+        Item first = items[head];
+        items[head] = null;
+        head = (head + 1) & (items.length - 1);
+        size--;
+        shrink();
+        return first;
+    }
+
+    public Item removeLast() { // remove and return the item from the end
+        if (isEmpty())
+            throw new NoSuchElementException();
+
+        size--;
+        int tail = (head + size) & (items.length - 1);
+        Item last = items[tail];
+        items[tail] = null;
+        shrink();
+        return last;
+    }
+
+    private void shrink() {
+        if (items.length > 2 && size <= items.length / 4)
+            resize(items.length / 2);
+    }
+
+    // copies the items, in order, to the start of a new array
+    private void resize(int capacity) {
+        @SuppressWarnings("unchecked")
+        Item[] newItems = (Item[]) new Object[capacity];
+        int firstPart = Math.min(size, items.length - head);
+        System.arraycopy(items, head, newItems, 0, firstPart);
+        System.arraycopy(items, 0, newItems, firstPart, size - firstPart);
+        items = newItems;
+        head = 0;
+    }
+
+    public Iterator<Item> iterator() { // return an iterator over items in order
+                                       // from front to end
+        return new Iterator<Item>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Item next() {
+                if (next >= size)
+                    throw new NoSuchElementException();
+                return items[(head + next++) & (items.length - 1)];
+            }
+        };
+    }
+
+    public static void main(String[] args) { // unit testing
+        ResizingArrayDeque<Integer> d = new ResizingArrayDeque<>();
+
+        assert d.isEmpty();
+        try {
+            d.removeFirst();
+            assert false;
+        } catch (NoSuchElementException nse) {
+            // good
+        }
+        try {
+            d.addLast(null);
+            assert false;
+        } catch (NullPointerException npe) {
+            // good
+        }
+
+        d.addFirst(2);
+        d.addFirst(1);
+        d.addLast(3);
+        d.addLast(4);
+
+        int expected = 1;
+        for (int i : d) {
+            assert i == expected++;
+        }
+
+        assert d.removeFirst() == 1;
+        assert d.removeLast() == 4;
+        assert d.removeLast() == 3;
+        assert d.removeFirst() == 2;
+        assert d.isEmpty();
+
+        // wrap around the end of the array while growing and shrinking
+        for (int round = 0; round < 3; round++) {
+            for (int j = 0; j < 1000; j++) {
+                d.addLast(j);
+                if (j % 3 == 0)
+                    d.removeFirst();
+            }
+            while (!d.isEmpty()) {
+                d.removeLast();
+            }
+        }
+        for (int j = 0; j < 10; j++) {
+            d.addFirst(j);
+        }
+        expected = 9;
+        for (int i : d) {
+            assert i == expected--;
+        }
+    }
+}
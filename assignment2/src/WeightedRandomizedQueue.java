@@ -0,0 +1,217 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import edu.princeton.cs.algs4.StdRandom;
+
+/**
+ * Randomized queue in which each item is chosen with probability
+ * proportional to its weight. Items are kept densely packed as in
+ * RandomizedQueue, with a Fenwick tree over their weights, so enqueue(),
+ * dequeue() and sample() all take O(log n).
+ * <p>
+ * Weights are summed in doubles; after very many updates the tree may drift
+ * from the exact sums by a few ulps, which only shifts the choice between
+ * neighbouring items by as much.
+ */
+public class WeightedRandomizedQueue<Item> implements Iterable<Item> {
+    private Item[] queue;
+    private double[] weight;
+    private double[] tree; // Fenwick tree, tree[i] sums weights (i - lowbit(i), i]
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public WeightedRandomizedQueue() { // construct an empty queue
+        queue = (Item[]) new Object[1];
+        weight = new double[1];
+        tree = new double[2];
+    }
+
+    public boolean isEmpty() { // is the queue empty?
+        return size == 0;
+    }
+
+    public int size() { // return the number of items on the queue
+        return size;
+    }
+
+    public double totalWeight() { // sum of the weights of all items
+        return prefix(tree, size);
+    }
+
+    public void enqueue(Item item) { // add the item with weight 1
+        enqueue(item, 1.0);
+    }
+
+    public void enqueue(Item item, double w) { // add the item with weight w > 0
+        if (item == null)
+            throw new NullPointerException();
+        if (!(w > 0) || Double.isInfinite(w))
+            throw new IllegalArgumentException();
+
+        if (size == queue.length)
+            resize(2 * queue.length);
+
+        queue[size] = item;
+        weight[size] = w;
+        add(tree, size + 1, w);
+        size++;
+    }
+
+    public Item dequeue() { // remove and return an item chosen by weight
+        if (size == 0)
+            throw new NoSuchElementException();
+
+        int idx = pick(tree, size);
+        Item item = queue[idx];
+        int last = --size;
+
+        // move the last item into the hole
+        add(tree, idx + 1, weight[last] - weight[idx]);
+        add(tree, last + 1, -weight[last]);
+        queue[idx] = queue[last];
+        weight[idx] = weight[last];
+        queue[last] = null;
+        weight[last] = 0;
+
+        if (size > 0 && size <= queue.length / 4)
+            resize(queue.length / 2);
+
+        return item;
+    }
+
+    public Item sample() { // return (but do not remove) an item chosen by
+                           // weight
+        if (size == 0)
+            throw new NoSuchElementException();
+
+        return queue[pick(tree, size)];
+    }
+
+    // copies the live items into new arrays and rebuilds the tree in O(n)
+    private void resize(int capacity) {
+        queue = Arrays.copyOf(queue, capacity);
+        weight = Arrays.copyOf(weight, capacity);
+        tree = build(weight, size, capacity);
+    }
+
+    private static double[] build(double[] weight, int n, int capacity) {
+        double[] tree = new double[capacity + 1];
+        for (int i = 1; i <= capacity; i++) {
+            if (i <= n)
+                tree[i] += weight[i - 1];
+            int parent = i + (i & -i);
+            if (parent <= capacity)
+                tree[parent] += tree[i];
+        }
+        return tree;
+    }
+
+    private static void add(double[] tree, int i, double delta) {
+        for (; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    private static double prefix(double[] tree, int i) {
+        double sum = 0;
+        for (; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    // index in [0, n) of the item a uniform point on [0, total weight) falls
+    // in, by descending the tree from its highest power of two
+    private static int pick(double[] tree, int n) {
+        double r = StdRandom.uniform() * prefix(tree, n);
+        int pos = 0;
+        for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>>= 1) {
+            int next = pos + step;
+            if (next < tree.length && tree[next] <= r) {
+                pos = next;
+                r -= tree[next];
+            }
+        }
+        // rounding can only push the point past the last item
+        return Math.min(pos, n - 1);
+    }
+
+    public Iterator<Item> iterator() { // return an independent iterator over
+                                       // the items, each next item chosen by
+                                       // weight among those not yet returned
+        return new Iterator<Item>() {
+            private final Object[] items = Arrays.copyOf(queue, size, Object[].class);
+            private final double[] w = Arrays.copyOf(weight, size);
+            private final double[] t = build(w, size, size);
+            private int left = size;
+
+            @Override
+            public boolean hasNext() {
+                return left > 0;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public Item next() {
+                if (left <= 0)
+                    throw new NoSuchElementException();
+
+                int idx = pick(t, left);
+                Object item = items[idx];
+                int last = --left;
+                add(t, idx + 1, w[last] - w[idx]);
+                add(t, last + 1, -w[last]);
+                items[idx] = items[last];
+                w[idx] = w[last];
+                return (Item) item;
+            }
+        };
+    }
+
+    public static void main(String[] args) { // unit testing
+        WeightedRandomizedQueue<String> q = new WeightedRandomizedQueue<>();
+
+        try {
+            q.enqueue("x", 0);
+            assert false;
+        } catch (IllegalArgumentException iae) {
+            // good
+        }
+
+        // "heavy" should come up about 9 times as often as "light"
+        q.enqueue("light", 1);
+        q.enqueue("heavy", 9);
+        assert q.totalWeight() == 10;
+        int heavy = 0;
+        for (int j = 0; j < 100000; j++) {
+            if (q.sample().equals("heavy"))
+                heavy++;
+        }
+        assert Math.abs(heavy - 90000) < 1500 : heavy;
+
+        // dequeueing keeps the tree in step with the items left
+        WeightedRandomizedQueue<Integer> rq = new WeightedRandomizedQueue<>();
+        double total = 0;
+        for (int j = 1; j <= 1000; j++) {
+            rq.enqueue(j, j);
+            total += j;
+        }
+        int iterated = 0;
+        for (int j : rq) {
+            assert j >= 1 && j <= 1000;
+            iterated++;
+        }
+        assert iterated == 1000;
+
+        boolean[] seen = new boolean[1001];
+        while (!rq.isEmpty()) {
+            int j = rq.dequeue();
+            assert !seen[j];
+            seen[j] = true;
+            total -= j;
+            assert Math.abs(rq.totalWeight() - total) < 1e-6;
+        }
+        System.out.println("heavy sampled " + heavy + " times out of 100000");
+    }
+}
@@ -0,0 +1,225 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free work-stealing deque (Chase and Lev, "Dynamic Circular
+ * Work-Stealing Deque", SPAA 2005), for task pools.
+ * <p>
+ * The contract differs from Deque in who may call what. One thread, the
+ * owner, produces and consumes at the end: only it may call addLast(),
+ * removeLast() and pollLast(), which work like a stack. Any other thread, a
+ * thief, may only take from the front with removeFirst() or pollFirst().
+ * There is no addFirst(): items enter only at the owner's end. Owner
+ * operations use a compare-and-set only when they race a thief for the last
+ * item; thieves compare-and-set the front index.
+ * <p>
+ * Removed items are cleared from the array. A thief clears its slot after
+ * taking it, so the owner never writes into a slot that still holds an item
+ * (it grows the array instead); otherwise a thief's late clear could wipe
+ * the same item pushed again. The one exception is a steal that races a
+ * grow: the thief clears the old array, so the copy in the new one keeps a
+ * stale reference to its item until the next grow, which happens at the
+ * latest when the owner's end reaches that slot.
+ */
+public class WorkStealingDeque<Item> implements Iterable<Item> {
+    private final AtomicLong top = new AtomicLong(); // next item to steal
+    private volatile long bottom;                    // next free slot
+    private volatile AtomicReferenceArray<Item> array;
+
+    public WorkStealingDeque() { // construct an empty deque
+        array = new AtomicReferenceArray<>(16);
+    }
+
+    public boolean isEmpty() { // is the deque empty at this moment?
+        return size() == 0;
+    }
+
+    public int size() { // number of items at this moment
+        long size = bottom - top.get();
+        return size < 0 ? 0 : (int) size;
+    }
+
+    public void addLast(Item item) { // add the item to the end; owner only
+        if (item == null)
+            throw new NullPointerException();
+
+        long b = bottom;
+        long t = top.get();
+        AtomicReferenceArray<Item> a = array;
+        if (b - t >= a.length() || a.get((int) b & (a.length() - 1)) != null) {
+            a = grow(a, b, t);
+            array = a;
+        }
+        a.lazySet((int) b & (a.length() - 1), item);
+        bottom = b + 1; // volatile write publishes the item to thieves
+    }
+
+    // copies items [t, b) to twice the room; thieves still reading the old
+    // array see the same items at the same indices
+    private AtomicReferenceArray<Item> grow(AtomicReferenceArray<Item> a, long b, long t) {
+        AtomicReferenceArray<Item> bigger = new AtomicReferenceArray<>(2 * a.length());
+        for (long i = t; i < b; i++) {
+            bigger.lazySet((int) i & (bigger.length() - 1), a.get((int) i & (a.length() - 1)));
+        }
+        // items stolen before top is read here were or will be cleared in the
+        // old array only, so clear their copies; later steals stay stale
+        for (long i = t, stolen = Math.min(top.get(), b); i < stolen; i++) {
+            bigger.set((int) i & (bigger.length() - 1), null);
+        }
+        return bigger;
+    }
+
+    public Item removeLast() { // remove and return the item from the end;
+                               // owner only
+        Item item = pollLast();
+        if (item == null)
+            throw new NoSuchElementException();
+        return item;
+    }
+
+    public Item pollLast() { // as removeLast(), but null if empty
+        long b = bottom - 1;
+        AtomicReferenceArray<Item> a = array;
+        bottom = b; // volatile write, then read: thieves see the claim first
+        long t = top.get();
+
+        if (t > b) { // empty
+            bottom = b + 1;
+            return null;
+        }
+
+        int idx = (int) b & (a.length() - 1);
+        Item item = a.get(idx);
+        if (t == b) {
+            // the last item: whoever moves top first gets it
+            if (top.compareAndSet(t, t + 1))
+                a.lazySet(idx, null);
+            else
+                item = null; // the thief that won clears the slot
+            bottom = b + 1;
+        } else {
+            a.lazySet(idx, null); // no thief can reach slot b any more
+        }
+        return item;
+    }
+
+    public Item removeFirst() { // remove and return the item from the front;
+                                // any thread
+        Item item = pollFirst();
+        if (item == null)
+            throw new NoSuchElementException();
+        return item;
+    }
+
+    public Item pollFirst() { // as removeFirst(), but null if empty
+        while (true) {
+            long t = top.get();
+            long b = bottom;
+            if (t >= b)
+                return null;
+
+            AtomicReferenceArray<Item> a = array;
+            int idx = (int) t & (a.length() - 1);
+            Item item = a.get(idx);
+            if (top.compareAndSet(t, t + 1)) {
+                // the owner does not write into the slot while it still
+                // holds item, so this cannot clear a newer push
+                a.compareAndSet(idx, item, null);
+                return item;
+            }
+            // lost the race to another thief or the owner, try again
+        }
+    }
+
+    public Iterator<Item> iterator() { // items from front to end; only
+                                       // consistent in the owner while no
+                                       // thief is active
+        final long b = bottom;
+        final AtomicReferenceArray<Item> a = array;
+        return new Iterator<Item>() {
+            private long next = top.get();
+
+            @Override
+            public boolean hasNext() {
+                return next < b;
+            }
+
+            @Override
+            public Item next() {
+                if (next >= b)
+                    throw new NoSuchElementException();
+                return a.get((int) next++ & (a.length() - 1));
+            }
+        };
+    }
+
+    // unit testing
+    public static void main(String[] args) throws InterruptedException {
+        final WorkStealingDeque<Integer> d = new WorkStealingDeque<>();
+
+        assert d.pollLast() == null;
+        assert d.pollFirst() == null;
+        for (int j = 0; j < 100; j++) {
+            d.addLast(j);
+        }
+        int expected = 0;
+        for (int i : d) {
+            assert i == expected++;
+        }
+        assert d.removeFirst() == 0;
+        assert d.removeLast() == 99;
+        while (!d.isEmpty()) {
+            d.removeFirst();
+        }
+        // nothing taken stays reachable from the array
+        for (int j = 0; j < d.array.length(); j++) {
+            assert d.array.get(j) == null;
+        }
+
+        // the owner pushes and pops while thieves steal
+        final int items = 1000000;
+        final int thieves = 3;
+        final int[] taken = new int[items];
+        final boolean[] done = new boolean[1];
+
+        Thread[] workers = new Thread[thieves];
+        for (int t = 0; t < thieves; t++) {
+            workers[t] = new Thread(() -> {
+                while (true) {
+                    Integer item = d.pollFirst();
+                    if (item != null) {
+                        taken[item]++;
+                    } else {
+                        synchronized (done) {
+                            if (done[0] && d.isEmpty())
+                                return;
+                        }
+                    }
+                }
+            });
+            workers[t].start();
+        }
+
+        for (int j = 0; j < items; j++) {
+            d.addLast(j);
+            if (j % 3 == 0) {
+                Integer item = d.pollLast();
+                if (item != null)
+                    taken[item]++;
+            }
+        }
+        synchronized (done) {
+            done[0] = true;
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        for (int j = 0; j < items; j++) {
+            assert taken[j] == 1 : j + " taken " + taken[j] + " times";
+        }
+        System.out.println("took " + items + " items exactly once");
+    }
+}
@@ -1,17 +1,63 @@
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import edu.princeton.cs.algs4.In;
 import edu.princeton.cs.algs4.ResizingArrayBag;
 import edu.princeton.cs.algs4.StdDraw;
 import edu.princeton.cs.algs4.StdOut;
 
+/**
+ * Finds every maximal line segment through 4 or more of the given points.
+ * <p>
+ * Each point in turn is the anchor: the other points are sorted by the slope
+ * they make with it, so that points collinear with the anchor end up
+ * adjacent, and a segment is reported from its smallest point only. The
+ * engine decides how slopes are compared:
+ * <ul>
+ * <li>SLOPE sorts the Point objects with Point.slopeOrder(), comparing double
+ * slopes;
+ * <li>EXACT keeps the coordinates in int[] arrays and sorts them directly,
+ * comparing slopes by cross-multiplying in longs. No divisions, no boxing,
+ * and collinearity is exact wherever Point.slopeTo() is defined, that is for
+ * coordinates whose differences fit in an int;
+ * <li>HASH does not sort at all: it reduces each direction (dx, dy) by
+ * gcd(dx, dy) and counts the points per reduced direction in a primitive
+ * open-addressing hash table. The gcd takes O(log C) for coordinates within
+ * a range C, so this is expected O(n^2 log C) time in all instead of
+ * O(n^2 log n). Exact over the same coordinates as EXACT.
+ * </ul>
+ * Anchors are independent, so with a parallelism above 1 they are spread
+ * over a fork/join pool: each worker thread sorts into scratch arrays of its
+ * own, and the rule that a segment belongs to its smallest point needs no
+ * state shared between anchors. Segments come out in anchor order whatever
+ * the parallelism; at parallelism 1 the anchors run inline, without a pool.
+ */
 public class FastCollinearPoints {
+    // number of anchors a fork/join task handles without splitting further
+    private static final int ANCHORS_PER_TASK = 16;
+
     private ResizingArrayBag<LineSegment> segments;
 
+    public enum Engine {
+        SLOPE, EXACT, HASH
+    }
+
     public FastCollinearPoints(Point[] points) { // finds all line segments
                                                  // containing 4 or more points
-        if (points == null)
+        this(points, Engine.SLOPE);
+    }
+
+    public FastCollinearPoints(Point[] points, Engine engine) {
+        this(points, engine, 1);
+    }
+
+    // as above, with the anchors spread over up to parallelism threads
+    public FastCollinearPoints(Point[] points, Engine engine, int parallelism) {
+        if (points == null || engine == null)
             throw new NullPointerException();
+        if (parallelism <= 0)
+            throw new IllegalArgumentException();
 
         points = Arrays.copyOf(points, points.length);
 
@@ -28,57 +74,319 @@ public class FastCollinearPoints {
             return;
         }
 
-        Point[] copy = new Point[points.length];
-        for (int j = 0; j < points.length; j++) {
-            copy[j] = points[j];
+        // the last three points cannot start a segment
+        int anchors = points.length - 3;
+        if (parallelism == 1) {
+            Scan scan = scan(engine, points);
+            for (int p = 0; p < anchors; p++) {
+                scan.anchor(p, segments);
+            }
+            return;
         }
 
-        Point[] processed = new Point[points.length];
-        Point[] linePoints = new Point[points.length];
+        final Point[] sorted = points;
+        ThreadLocal<Scan> scans = ThreadLocal.withInitial(() -> scan(engine, sorted));
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            segments = pool.invoke(new Anchors(scans, 0, anchors));
+        } finally {
+            pool.shutdown();
+        }
+    }
 
-        for (int pidx = 0; pidx < points.length - 3; pidx++) {
-            Point p = points[pidx];
+    private static Scan scan(Engine engine, Point[] points) {
+        switch (engine) {
+        case EXACT:
+            return new ExactScan(points);
+        case HASH:
+            return new HashScan(points);
+        default:
+            return new SlopeScan(points);
+        }
+    }
+
+    private static class Anchors extends RecursiveTask<ResizingArrayBag<LineSegment>> {
+        private static final long serialVersionUID = 1L;
+
+        private final ThreadLocal<Scan> scans;
+        private final int lo, hi; // anchors [lo, hi)
+
+        Anchors(ThreadLocal<Scan> scans, int lo, int hi) {
+            this.scans = scans;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected ResizingArrayBag<LineSegment> compute() {
+            if (hi - lo <= ANCHORS_PER_TASK) {
+                Scan scan = scans.get();
+                ResizingArrayBag<LineSegment> leaf = new ResizingArrayBag<>();
+                for (int p = lo; p < hi; p++) {
+                    scan.anchor(p, leaf);
+                }
+                return leaf;
+            }
 
-            processed[pidx] = p;
-            linePoints[0] = p;
+            int mid = (lo + hi) >>> 1;
+            Anchors left = new Anchors(scans, lo, mid);
+            Anchors right = new Anchors(scans, mid, hi);
+            invokeAll(left, right);
+            ResizingArrayBag<LineSegment> merged = left.join();
+            for (LineSegment segment : right.join()) {
+                merged.add(segment);
+            }
+            return merged;
+        }
+    }
+
+    // per-thread scratch space for anchoring at one point after another;
+    // points are sorted and distinct
+    private abstract static class Scan {
+        final Point[] points;
+
+        Scan(Point[] points) {
+            this.points = points;
+        }
+
+        // adds the segments whose smallest point is points[p]
+        abstract void anchor(int p, ResizingArrayBag<LineSegment> out);
+    }
+
+    // the SLOPE engine: the points sorted by Point.slopeOrder()
+    private static class SlopeScan extends Scan {
+        private final Point[] copy;
+
+        SlopeScan(Point[] points) {
+            super(points);
+            this.copy = Arrays.copyOf(points, points.length);
+        }
 
+        @Override
+        void anchor(int pidx, ResizingArrayBag<LineSegment> out) {
+            Point p = points[pidx];
             Arrays.sort(copy, p.slopeOrder());
 
-            for (int i = 1; i <= copy.length - 3; i++) {
-                linePoints[1] = copy[i];
-                int linePointIdx = 2;
-
-                double m1 = p.slopeTo(copy[i]);
-
-                boolean duplicate = Arrays.binarySearch(processed, 0, pidx + 1, copy[i]) >= 0;
-                int nextPointIdx = -1;
-                for (int j = i + 1; j < copy.length; j++) {
-                    double mj = p.slopeTo(copy[j]);
-                    if (mj != m1) {
-                        break;
-                    } else {
-                        if (!duplicate && Arrays.binarySearch(processed, 0, pidx + 1, copy[j]) >= 0) {
-                            duplicate = true;
-                            // keep going through all points that match this
-                            // slope
-                        }
-
-                        linePoints[linePointIdx++] = copy[j];
-                        nextPointIdx = j;
-                    }
+            // copy[0] is p itself, the only point at slope -infinity
+            for (int i = 1; i < copy.length;) {
+                double m = p.slopeTo(copy[i]);
+                boolean smallest = copy[i].compareTo(p) > 0;
+                Point last = copy[i];
+                int j = i + 1;
+                while (j < copy.length && p.slopeTo(copy[j]) == m) {
+                    smallest &= copy[j].compareTo(p) > 0;
+                    if (copy[j].compareTo(last) > 0)
+                        last = copy[j];
+                    j++;
                 }
+                if (j - i >= 3 && smallest)
+                    out.add(new LineSegment(p, last));
+                i = j;
+            }
+        }
+    }
+
+    // the EXACT engine: the direction (dx, dy) to each other point, turned
+    // into the upper half-plane so that both sides of a line have the same
+    // slope, and that point's index
+    private static class ExactScan extends Scan {
+        private final int[] xs;
+        private final int[] ys;
+        private final int[] dx;
+        private final int[] dy;
+        private final int[] id;
 
-                if (linePointIdx >= 4) {
-                    if (!duplicate) {
-                        Arrays.sort(linePoints, 0, linePointIdx);
+        ExactScan(Point[] points) {
+            super(points);
+            int n = points.length;
+            this.xs = new int[n];
+            this.ys = new int[n];
+            for (int j = 0; j < n; j++) {
+                xs[j] = points[j].x();
+                ys[j] = points[j].y();
+            }
+            this.dx = new int[n - 1];
+            this.dy = new int[n - 1];
+            this.id = new int[n - 1];
+        }
 
-                        segments.add(new LineSegment(linePoints[0], linePoints[linePointIdx - 1]));
-                    }
-                    i = nextPointIdx;
+        @Override
+        void anchor(int p, ResizingArrayBag<LineSegment> out) {
+            int m = 0;
+            for (int q = 0; q < xs.length; q++) {
+                if (q == p)
+                    continue;
+                int ddx = xs[q] - xs[p];
+                int ddy = ys[q] - ys[p];
+                if (ddy < 0 || (ddy == 0 && ddx < 0)) {
+                    ddx = -ddx;
+                    ddy = -ddy;
                 }
+                dx[m] = ddx;
+                dy[m] = ddy;
+                id[m] = q;
+                m++;
+            }
 
+            sort(0, m - 1);
+
+            for (int i = 0; i < m;) {
+                int j = i + 1;
+                boolean smallest = id[i] > p;
+                int last = id[i];
+                while (j < m && compare(i, j) == 0) {
+                    smallest &= id[j] > p;
+                    last = Math.max(last, id[j]);
+                    j++;
+                }
+                // points are sorted, so p is the smallest point on the
+                // segment when every other index is larger
+                if (j - i >= 3 && smallest)
+                    out.add(new LineSegment(points[p], points[last]));
+                i = j;
             }
         }
+
+        // sign of slope(i) - slope(j), by the angle of the two directions in
+        // the upper half-plane
+        private int compare(int i, int j) {
+            return Long.signum((long) dy[i] * dx[j] - (long) dx[i] * dy[j]);
+        }
+
+        // 3-way quicksort on the slopes of [lo, hi], which keeps runs of
+        // collinear points cheap
+        private void sort(int lo, int hi) {
+            while (hi - lo >= 8) {
+                swap(lo, lo + (hi - lo) / 2); // middle pivot, for sorted input
+                int lt = lo;
+                int gt = hi;
+                int i = lo + 1;
+                while (i <= gt) {
+                    int c = compare(i, lt);
+                    if (c < 0)
+                        swap(lt++, i++);
+                    else if (c > 0)
+                        swap(i, gt--);
+                    else
+                        i++;
+                }
+                // recurse into the smaller side, loop on the larger
+                if (lt - lo < hi - gt) {
+                    sort(lo, lt - 1);
+                    lo = gt + 1;
+                } else {
+                    sort(gt + 1, hi);
+                    hi = lt - 1;
+                }
+            }
+            for (int i = lo + 1; i <= hi; i++) {
+                for (int j = i; j > lo && compare(j, j - 1) < 0; j--) {
+                    swap(j, j - 1);
+                }
+            }
+        }
+
+        private void swap(int i, int j) {
+            int t = dx[i];
+            dx[i] = dx[j];
+            dx[j] = t;
+            t = dy[i];
+            dy[i] = dy[j];
+            dy[j] = t;
+            t = id[i];
+            id[i] = id[j];
+            id[j] = t;
+        }
+    }
+
+    // the HASH engine: a table from reduced direction to the number of
+    // points in that direction and the smallest and largest of their indices
+    private static class HashScan extends Scan {
+        private final int[] xs;
+        private final int[] ys;
+        private final int mask;
+        private final long[] keys;
+        private final int[] count;   // 0 for a free slot
+        private final int[] min;
+        private final int[] max;
+        private final int[] used;    // slots taken by the current anchor
+        private int usedCount;
+
+        HashScan(Point[] points) {
+            super(points);
+            int n = points.length;
+            this.xs = new int[n];
+            this.ys = new int[n];
+            for (int j = 0; j < n; j++) {
+                xs[j] = points[j].x();
+                ys[j] = points[j].y();
+            }
+            // at most n - 1 directions, so the table is at most half full
+            int capacity = Integer.highestOneBit(Math.max(2, n - 1)) * 4;
+            this.mask = capacity - 1;
+            this.keys = new long[capacity];
+            this.count = new int[capacity];
+            this.min = new int[capacity];
+            this.max = new int[capacity];
+            this.used = new int[n];
+        }
+
+        @Override
+        void anchor(int p, ResizingArrayBag<LineSegment> out) {
+            for (int q = 0; q < xs.length; q++) {
+                if (q == p)
+                    continue;
+                int dx = xs[q] - xs[p];
+                int dy = ys[q] - ys[p];
+                if (dy < 0 || (dy == 0 && dx < 0)) {
+                    dx = -dx;
+                    dy = -dy;
+                }
+                int g = gcd(Math.abs(dx), dy);
+                long key = (long) (dx / g) << 32 | (dy / g) & 0xffffffffL;
+
+                int slot = slot(key);
+                if (count[slot] == 0) {
+                    keys[slot] = key;
+                    min[slot] = q;
+                    max[slot] = q;
+                    used[usedCount++] = slot;
+                } else {
+                    min[slot] = Math.min(min[slot], q);
+                    max[slot] = Math.max(max[slot], q);
+                }
+                count[slot]++;
+            }
+
+            // points are sorted, so p is the smallest point on the segment
+            // when every other index is larger
+            for (int k = 0; k < usedCount; k++) {
+                int slot = used[k];
+                if (count[slot] >= 3 && min[slot] > p)
+                    out.add(new LineSegment(points[p], points[max[slot]]));
+                count[slot] = 0;
+            }
+            usedCount = 0;
+        }
+
+        // the slot holding key, or the free slot it goes into; linear
+        // probing from a multiplicative hash
+        private int slot(long key) {
+            int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+            while (count[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private static int gcd(int a, int b) {
+            while (b != 0) {
+                int t = a % b;
+                a = b;
+                b = t;
+            }
+            return a;
+        }
     }
 
     public int numberOfSegments() {
@@ -94,7 +402,59 @@ public class FastCollinearPoints {
         return ret;
     } // the line segments
 
+    // the segments as strings, sorted, to compare runs that may report them
+    // in different orders
+    private static String[] sorted(FastCollinearPoints collinear) {
+        LineSegment[] found = collinear.segments();
+        String[] names = new String[found.length];
+        for (int j = 0; j < found.length; j++) {
+            names[j] = found[j].toString();
+        }
+        Arrays.sort(names);
+        return names;
+    }
+
     public static void main(String[] args) {
+        // a vertical, a horizontal and a diagonal line all through (10, 10),
+        // six points on a line of slope -3/2 and four on a line of slope 1,
+        // among strays that complete no other line; segments run from the
+        // smallest point (by y, then x) to the largest
+        int[][] xy = { { 10, 0 }, { 10, 5 }, { 10, 10 }, { 10, 15 }, { 10, 20 }, { 0, 10 }, { 5, 10 }, { 20, 10 },
+                { 30, 10 }, { 4, 4 }, { 16, 16 }, { 22, 22 }, { 40, 0 }, { 38, 3 }, { 36, 6 }, { 34, 9 },
+                { 32, 12 }, { 30, 15 }, { 0, 40 }, { 1, 41 }, { 2, 42 }, { 3, 43 }, { 7, 34 }, { 25, 2 },
+                { 3, 6 } };
+        Point[] fixed = new Point[xy.length];
+        for (int j = 0; j < xy.length; j++) {
+            fixed[j] = new Point(xy[j][0], xy[j][1]);
+        }
+        String[] expected = { "(10, 0) -> (10, 20)", "(40, 0) -> (30, 15)", "(4, 4) -> (22, 22)",
+                "(0, 10) -> (30, 10)", "(0, 40) -> (3, 43)" };
+        Arrays.sort(expected);
+        for (Engine engine : Engine.values()) {
+            for (int parallelism : new int[] { 1, 4 }) {
+                FastCollinearPoints collinear = new FastCollinearPoints(fixed, engine, parallelism);
+                assert collinear.numberOfSegments() == expected.length;
+                assert Arrays.equals(sorted(collinear), expected) : engine + " at parallelism " + parallelism;
+            }
+        }
+
+        // a 12-by-12 grid has many lines sharing many points, and enough
+        // anchors to split over several tasks; every engine and parallelism
+        // must report each line once, from its smallest point
+        Point[] grid = new Point[144];
+        for (int j = 0; j < grid.length; j++) {
+            grid[j] = new Point(3 * (j % 12), 5 * (j / 12));
+        }
+        String[] slope = sorted(new FastCollinearPoints(grid, Engine.SLOPE, 1));
+        assert slope.length == 326; // counted by brute force over all pairs
+        for (Engine engine : Engine.values()) {
+            for (int parallelism : new int[] { 1, 4 }) {
+                assert Arrays.equals(sorted(new FastCollinearPoints(grid, engine, parallelism)), slope) : engine
+                        + " at parallelism " + parallelism;
+            }
+        }
+        if (args.length == 0)
+            return;
 
         // read the n points from a file
         In in = new In(args[0]);
@@ -114,8 +474,10 @@ public class FastCollinearPoints {
         }
         StdDraw.show();
 
-        // print and draw the line segments
-        FastCollinearPoints collinear = new FastCollinearPoints(points);
+        // print and draw the line segments, with the engine named by an
+        // optional second argument
+        Engine engine = args.length > 1 ? Engine.valueOf(args[1].toUpperCase()) : Engine.SLOPE;
+        FastCollinearPoints collinear = new FastCollinearPoints(points, engine);
         for (LineSegment segment : collinear.segments()) {
             StdOut.println(segment);
             segment.draw();
@@ -20,6 +20,15 @@ public class Point implements Comparable<Point> {
         this.y = y;
     }
 
+    // coordinates, for FastCollinearPoints' primitive arrays
+    int x() {
+        return x;
+    }
+
+    int y() {
+        return y;
+    }
+
     /**
      * Draws this point to standard draw.
      */